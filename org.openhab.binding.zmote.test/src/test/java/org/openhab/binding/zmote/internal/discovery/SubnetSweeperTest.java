@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.zmote.internal.exception.ConfigurationException;
+import org.openhab.binding.zmote.internal.model.ZMoteDevice;
+
+/**
+ * Tests the {@link SubnetSweeper} against an embedded HTTP server which answers
+ * like a ZMote, like another web server or not at all, depending on the path.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class SubnetSweeperTest {
+
+    private static final String UUID = "CI001f1234";
+    private static final int TIMEOUT = 500;
+
+    private Server server;
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    private final Map<String, ZMoteDevice> devices = new ConcurrentHashMap<>();
+    private final IDiscoveryListener listener = device -> devices.put(device.getUrl(), device);
+
+    @Before
+    public void setUp() throws Exception {
+        server = new Server(new InetSocketAddress("127.0.0.1", 0));
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+                    final HttpServletResponse response) throws IOException {
+
+                switch (target) {
+                    case "/uuid":
+                        response.setContentType("text/plain");
+                        response.getWriter().print("uuid," + UUID);
+                        break;
+
+                    case "/other/uuid":
+                        response.setContentType("text/html");
+                        response.getWriter().print("<html>Not a ZMote</html>");
+                        break;
+
+                    case "/slow/uuid":
+                        try {
+                            Thread.sleep(TIMEOUT * 3);
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        response.getWriter().print("uuid,CI00slow");
+                        break;
+
+                    default:
+                        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                        break;
+                }
+
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+
+        baseUrl = server.getURI().toString().replaceAll("/$", "");
+
+        httpClient = new HttpClient();
+        httpClient.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.stop();
+        server.stop();
+    }
+
+    @Test
+    public void sweepReportsDeviceInRange() throws Exception {
+        final int port = server.getURI().getPort();
+        final SubnetSweeper sweeper = new SubnetSweeper(httpClient, 4, TIMEOUT, port);
+
+        assertEquals(1, sweeper.sweep("127.0.0.1/32", listener));
+        assertEquals(Collections.singleton("http://127.0.0.1:" + port), devices.keySet());
+
+        final ZMoteDevice device = devices.values().iterator().next();
+        assertEquals(UUID, device.getUuid());
+        assertEquals(ZMoteDiscoveryService.ZMOTE_MAKE, device.getMake());
+    }
+
+    @Test
+    public void probeReportsOnlyZMoteDevices() throws Exception {
+        final SubnetSweeper sweeper = new SubnetSweeper(httpClient, 2, TIMEOUT, 80);
+        final List<String> urls = Arrays.asList(baseUrl, baseUrl + "/other", baseUrl + "/missing",
+                baseUrl + "/slow");
+
+        assertEquals(1, sweeper.probe(urls, listener));
+        assertEquals(Collections.singleton(baseUrl), devices.keySet());
+    }
+
+    @Test
+    public void parseRangeSkipsNetworkAndBroadcastAddresses() {
+        final SubnetSweeper sweeper = new SubnetSweeper(httpClient, 1, TIMEOUT, 80);
+
+        assertEquals(Arrays.asList("http://10.0.0.1", "http://10.0.0.2"), sweeper.parseRange("10.0.0.3/30"));
+        assertEquals(Arrays.asList("http://10.0.0.4", "http://10.0.0.5"), sweeper.parseRange("10.0.0.5/31"));
+        assertEquals(65534, sweeper.parseRange("172.16.0.0/16").size());
+    }
+
+    @Test
+    public void parseRangeRejectsInvalidRanges() {
+        final SubnetSweeper sweeper = new SubnetSweeper(httpClient, 1, TIMEOUT, 80);
+
+        for (final String range : Arrays.asList(null, "", "10.0.0.0", "10.0.0.0/15", "10.0.0.0/33", "::1/128")) {
+            try {
+                sweeper.parseRange(range);
+                fail("Accepted invalid range " + range);
+            } catch (final ConfigurationException e) {
+                // expected
+            }
+        }
+    }
+}
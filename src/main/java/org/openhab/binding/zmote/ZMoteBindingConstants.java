@@ -24,24 +24,47 @@ public class ZMoteBindingConstants {
     public static final String BINDING_ID = "zmote";
 
     public final static ThingTypeUID THING_TYPE_ZMT2 = new ThingTypeUID(BINDING_ID, "zmt2");
+    public final static ThingTypeUID THING_TYPE_GROUP = new ThingTypeUID(BINDING_ID, "group");
 
     public final static int DEFAULT_TIMEOUT = 5;
     public final static int DEFAULT_RETRY = 3;
+    public final static int DEFAULT_SUPPRESSION_WINDOW = 0;
+    public final static int DEFAULT_OFFLINE_BUFFER = 0;
+    public final static int OFFLINE_BUFFER_SIZE = 10;
+    public final static int COMMAND_DEADLINE = 10;
+    public final static int STEPPER_PRESS_DEADLINE = 500;
+    public final static int MAX_HOLD_DURATION = 30;
+
+    public final static int CIRCUIT_BREAKER_THRESHOLD = 3;
+    public final static int CIRCUIT_BREAKER_COOLDOWN = 30;
 
     public final static int DISCOVERY_INTERVAL = 60;
     public final static int DISCOVERY_TIMEOUT = 20;
     public final static int DISCOVERY_UPDATE_INTERVAL = 30;
+    public final static int STATISTICS_INTERVAL = 300;
 
     public final static String CHANNEL_ONLINE = "online";
     public final static String CHANNEL_SENDCODE = "sendcode";
     public final static String CHANNEL_SENDKEY = "sendkey";
+    public final static String CHANNEL_SENDSEQUENCE = "sendsequence";
+    public final static String CHANNEL_STEPPER = "stepper";
 
     public final static String CONFIG_UUID = "uuid";
     public final static String CONFIG_FILE = "configFile";
     public final static String CONFIG_URL = "overrideUrl";
     public final static String CONFIG_RETRY = "retry";
     public final static String CONFIG_TIMEOUT = "timeout";
+    public final static String CONFIG_SUPPRESSION_WINDOW = "suppressionWindow";
+    public final static String CONFIG_OFFLINE_BUFFER = "offlineBuffer";
     public final static String CONFIG_REMOTE = "remote";
+    public final static String CONFIG_MEMBERS = "members";
+
+    public final static String CHANNEL_CONFIG_PRIORITY = "priority";
+    public final static String CHANNEL_CONFIG_UP_KEY = "upKey";
+    public final static String CHANNEL_CONFIG_DOWN_KEY = "downKey";
+    public final static String CHANNEL_CONFIG_STEPS = "steps";
+
+    public final static int DEFAULT_STEPPER_STEPS = 100;
 
     public static final String PROP_UUID = CONFIG_UUID;
     public static final String PROP_URL = "url";
@@ -49,6 +72,31 @@ public class ZMoteBindingConstants {
     public static final String PROP_MODEL = "model";
     public static final String PROP_REVISION = "revision";
     public static final String PROP_TYPE = "type";
+    public static final String PROP_INTERFACE = "interface";
+
+    public final static String BINDING_CONFIG_INCLUDE_INTERFACES = "includeInterfaces";
+    public final static String BINDING_CONFIG_EXCLUDE_INTERFACES = "excludeInterfaces";
+    public final static String BINDING_CONFIG_SWEEP_RANGE = "sweepRange";
+    public final static String BINDING_CONFIG_SWEEP_CONCURRENCY = "sweepConcurrency";
+    public final static String BINDING_CONFIG_SWEEP_TIMEOUT = "sweepTimeout";
+    public final static String BINDING_CONFIG_SWEEP_INTERVAL = "sweepInterval";
+    public final static String BINDING_CONFIG_HTTP_MAX_THREADS = "httpMaxThreads";
+    public final static String BINDING_CONFIG_HTTP_MAX_CONNECTIONS = "httpMaxConnections";
+    public final static String BINDING_CONFIG_HTTP_MAX_QUEUED = "httpMaxQueued";
+    public final static String BINDING_CONFIG_HTTP_IDLE_TIMEOUT = "httpIdleTimeout";
+    public final static String BINDING_CONFIG_HTTP_CONNECT_TIMEOUT = "httpConnectTimeout";
+    public final static String BINDING_CONFIG_VIRTUAL_THREADS = "virtualThreads";
+
+    public final static int DEFAULT_SWEEP_CONCURRENCY = 32;
+    public final static int DEFAULT_SWEEP_TIMEOUT = 500;
+    public final static int DEFAULT_SWEEP_INTERVAL = 60;
+
+    public final static int MIN_HTTP_THREADS = 4;
+    public final static int DEFAULT_HTTP_THREADS = 16;
+    public final static int DEFAULT_HTTP_MAX_CONNECTIONS = 2;
+    public final static int DEFAULT_HTTP_MAX_QUEUED = 32;
+    public final static int DEFAULT_HTTP_IDLE_TIMEOUT = 60000;
+    public final static int DEFAULT_HTTP_CONNECT_TIMEOUT = 3000;
 
     public final static Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Collections.singleton(THING_TYPE_ZMT2);
 }
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.eclipse.smarthome.core.thing.Channel;
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.ThingStatus;
+import org.eclipse.smarthome.core.thing.ThingStatusDetail;
+import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
+import org.eclipse.smarthome.core.types.Command;
+import org.eclipse.smarthome.core.types.RefreshType;
+import org.openhab.binding.zmote.ZMoteBindingConstants;
+import org.openhab.binding.zmote.internal.model.CommandPriority;
+import org.openhab.binding.zmote.internal.model.DeviceConfiguration;
+import org.openhab.binding.zmote.internal.model.GroupResult;
+import org.openhab.binding.zmote.internal.service.IZMoteService;
+import org.openhab.binding.zmote.internal.util.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ZMoteGroupHandler} sends a button or IR code to several ZMote things
+ * at once. The devices are served in parallel, so a command takes about as long as
+ * the slowest device. Things sharing a device are sent one after another.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class ZMoteGroupHandler extends BaseThingHandler {
+
+    private final Logger logger = LoggerFactory.getLogger(ZMoteGroupHandler.class);
+
+    private final IZMoteService zmoteService;
+    private final Function<String, ZMoteHandler> memberLookup;
+    private volatile List<String> members = Collections.emptyList();
+
+    /**
+     * Creates a new group handler.
+     *
+     * @param thing The group thing.
+     * @param service The ZMote service.
+     * @param memberLookup Returns the handler of a ZMote thing by its UID or null if it does not exist.
+     */
+    public ZMoteGroupHandler(final Thing thing, final IZMoteService service,
+            final Function<String, ZMoteHandler> memberLookup) {
+        super(thing);
+        zmoteService = service;
+        this.memberLookup = memberLookup;
+    }
+
+    @Override
+    public void initialize() {
+        final Object value = getThing().getConfiguration().get(ZMoteBindingConstants.CONFIG_MEMBERS);
+        final List<String> things = new ArrayList<>();
+
+        if (value != null) {
+            for (final String member : value.toString().split(",")) {
+                if (!member.trim().isEmpty()) {
+                    things.add(member.trim());
+                }
+            }
+        }
+
+        members = Collections.unmodifiableList(things);
+
+        if (things.isEmpty()) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, "The group has no members!");
+        } else {
+            updateStatus(ThingStatus.ONLINE);
+        }
+    }
+
+    @Override
+    public void handleCommand(final ChannelUID channelUID, final Command command) {
+        if ((command == null) || (command instanceof RefreshType) || (zmoteService == null)) {
+            return;
+        }
+
+        try {
+            final Deadline deadline = Deadline
+                    .after(TimeUnit.SECONDS.toMillis(ZMoteBindingConstants.COMMAND_DEADLINE));
+            final List<DeviceConfiguration> configs = getMemberConfigurations();
+            final CommandPriority priority = getChannelPriority(channelUID);
+            final GroupResult result;
+
+            if (configs.isEmpty()) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Dropped command '{}' on channel '{}' as no member is available.", command,
+                            channelUID);
+                }
+                return;
+            }
+
+            if (channelUID.getId().equals(ZMoteBindingConstants.CHANNEL_SENDKEY)) {
+                result = zmoteService.sendKeyToGroup(configs, command.toString(), priority, deadline);
+
+            } else if (channelUID.getId().equals(ZMoteBindingConstants.CHANNEL_SENDCODE)) {
+                result = zmoteService.sendCodeToGroup(configs, command.toString(), priority, deadline);
+
+            } else {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Don't know how to handle command {} on channel {}!", command, channelUID);
+                }
+                return;
+            }
+
+            // the members report their own device errors, so the group stays online
+            if (!result.isSuccess() && logger.isWarnEnabled()) {
+                logger.warn("Command '{}' on channel '{}' was sent for {} of {} members: {}", command, channelUID,
+                        result.getSentCount(), result.getOutcomes().size(), result);
+            }
+
+        } catch (final Exception e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to process command '{}' on channel '{}'!", command, channelUID, e);
+            }
+        }
+    }
+
+    private List<DeviceConfiguration> getMemberConfigurations() {
+        final List<DeviceConfiguration> configs = new ArrayList<>();
+
+        for (final String member : members) {
+            final ZMoteHandler handler = memberLookup.apply(member);
+            final DeviceConfiguration config = (handler != null) ? handler.getActiveDeviceConfiguration() : null;
+
+            if (config != null) {
+                configs.add(config);
+
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("Skipped group member {} as it is not initialized.", member);
+            }
+        }
+
+        return configs;
+    }
+
+    private CommandPriority getChannelPriority(final ChannelUID channelUID) {
+        final Channel channel = getThing().getChannel(channelUID.getId());
+        final Object value = (channel != null)
+                ? channel.getConfiguration().get(ZMoteBindingConstants.CHANNEL_CONFIG_PRIORITY) : null;
+
+        return CommandPriority.parse((value != null) ? value.toString() : null, CommandPriority.NORMAL);
+    }
+}
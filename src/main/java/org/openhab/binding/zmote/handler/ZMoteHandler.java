@@ -8,27 +8,49 @@
  */
 package org.openhab.binding.zmote.handler;
 
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.eclipse.smarthome.core.library.types.IncreaseDecreaseType;
 import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.thing.Channel;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
 import org.eclipse.smarthome.core.thing.ThingStatusInfo;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
+import org.eclipse.smarthome.core.thing.type.ChannelTypeUID;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
 import org.openhab.binding.zmote.ZMoteBindingConstants;
 import org.openhab.binding.zmote.internal.discovery.IZMoteDiscoveryService;
 import org.openhab.binding.zmote.internal.exception.CommunicationException;
 import org.openhab.binding.zmote.internal.exception.ConfigurationException;
+import org.openhab.binding.zmote.internal.exception.DeadlineExceededException;
 import org.openhab.binding.zmote.internal.exception.DeviceBusyException;
+import org.openhab.binding.zmote.internal.exception.InvalidCodeException;
+import org.openhab.binding.zmote.internal.model.CommandPriority;
+import org.openhab.binding.zmote.internal.model.DeviceConfiguration;
+import org.openhab.binding.zmote.internal.model.Step;
+import org.openhab.binding.zmote.internal.model.Stepper;
 import org.openhab.binding.zmote.internal.model.ZMoteConfig;
 import org.openhab.binding.zmote.internal.model.ZMoteDevice;
 import org.openhab.binding.zmote.internal.service.IZMoteService;
+import org.openhab.binding.zmote.internal.service.TransmitLock;
+import org.openhab.binding.zmote.internal.util.Deadline;
+import org.openhab.binding.zmote.internal.util.DuplicateFilter;
+import org.openhab.binding.zmote.internal.util.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,11 +62,28 @@ import org.slf4j.LoggerFactory;
  */
 public class ZMoteHandler extends BaseThingHandler {
 
+    private static final String HOLD_START_PREFIX = "START:";
+    private static final String HOLD_STOP = "STOP";
+
     private final Logger logger = LoggerFactory.getLogger(ZMoteHandler.class);
 
     private final IZMoteService zmoteService;
     private final IZMoteDiscoveryService zmoteDiscoveryService;
-    private ScheduledFuture<?> statusUpdateFuture = null;
+    private final Object initLock = new Object();
+    private Future<?> statusUpdateFuture = null;
+    private Future<?> initFuture = null;
+    private long initGeneration = 0;
+    private DeviceConfiguration registeredConfig = null;
+    private volatile DeviceConfiguration deviceConfig = null;
+    private final Map<String, CommandPriority> channelPriorities = new ConcurrentHashMap<>();
+    private final Map<String, Stepper> steppers = new ConcurrentHashMap<>();
+    private final DuplicateFilter duplicateFilter = new DuplicateFilter();
+
+    private final AtomicLong suppressedUpdates = new AtomicLong();
+    private volatile OnOffType publishedOnlineState = null;
+    private volatile Map<String, String> publishedProperties = null;
+    private volatile String loggedStatistics = null;
+    private volatile long nextStatisticsUpdate = 0;
 
     public ZMoteHandler(final Thing thing, final IZMoteService service, final IZMoteDiscoveryService discoveryService) {
         super(thing);
@@ -54,20 +93,36 @@ public class ZMoteHandler extends BaseThingHandler {
 
     @Override
     public void dispose() {
-        stopStatusUpdateWorker();
+        cancelInitialization();
         unregisterDeviceConfiguration();
+        deviceConfig = null;
     }
 
     @Override
     public void initialize() {
-        try {
-            startStatusUpdateWorker();
-
-            final ZMoteConfig config = getZMoteConfig();
-            registerDeviceConfiguration(config);
+        deviceConfig = null; // re-read the configuration
+        publishedOnlineState = null;
+        publishedProperties = null;
+        loggedStatistics = null;
+        nextStatisticsUpdate = 0;
+        channelPriorities.clear();
+        steppers.clear();
+        duplicateFilter.clear();
+        updateStatus(ThingStatus.UNKNOWN);
+
+        // loading the IR code file may take a while, so don't block the framework
+        synchronized (initLock) {
+            cancelInitialization();
+
+            final long generation = initGeneration;
+            final Runnable runnable = new Runnable() {
+                @Override
+                public void run() {
+                    loadDeviceConfiguration(generation);
+                }
+            };
 
-        } catch (final Exception e) {
-            updateStatusFromException(e);
+            initFuture = scheduler.submit(runnable);
         }
     }
 
@@ -79,22 +134,43 @@ public class ZMoteHandler extends BaseThingHandler {
                         (command != null ? command.getClass().getName() : null));
             }
 
-            final ZMoteConfig zmoteConfig = getZMoteConfig();
+            // a key press arriving much later than expected is worse than none at all
+            final Deadline deadline = Deadline
+                    .after(TimeUnit.SECONDS.toMillis(ZMoteBindingConstants.COMMAND_DEADLINE));
+            final DeviceConfiguration zmoteConfig = getDeviceConfiguration();
 
             if (channelUID.getId().equals(ZMoteBindingConstants.CHANNEL_ONLINE)) {
                 onChannelOnlineCommand(channelUID, command, zmoteConfig);
 
             } else if (channelUID.getId().equals(ZMoteBindingConstants.CHANNEL_SENDCODE)) {
-                onChannelSendCodeCommand(channelUID, command, zmoteConfig);
+                onChannelSendCodeCommand(channelUID, command, zmoteConfig, deadline);
 
             } else if (channelUID.getId().equals(ZMoteBindingConstants.CHANNEL_SENDKEY)) {
-                onChannelSendKeyCommand(channelUID, command, zmoteConfig);
+                onChannelSendKeyCommand(channelUID, command, zmoteConfig, deadline);
+
+            } else if (channelUID.getId().equals(ZMoteBindingConstants.CHANNEL_SENDSEQUENCE)) {
+                onChannelSendSequenceCommand(channelUID, command, zmoteConfig, deadline);
+
+            } else if (isStepperChannel(channelUID)) {
+                onChannelStepperCommand(channelUID, command, zmoteConfig);
 
             } else {
                 if (logger.isWarnEnabled()) {
                     logger.warn("Don't know how to handle command {} on channel {}!", command, channelUID);
                 }
             }
+        } catch (final DeadlineExceededException e) {
+            // not a device error, the thing status stays as it is
+            if (logger.isWarnEnabled()) {
+                logger.warn("Dropped command '{}' on channel '{}': {}", command, channelUID, e.getMessage());
+            }
+
+        } catch (final InvalidCodeException e) {
+            // neither is a typo in a raw code
+            if (logger.isWarnEnabled()) {
+                logger.warn("Ignored command on channel '{}': {}", channelUID, e.getMessage());
+            }
+
         } catch (final Exception e) {
             if (logger.isWarnEnabled()) {
                 logger.warn("Failed to process command '{}' on channel '{}'!", command, channelUID);
@@ -105,10 +181,33 @@ public class ZMoteHandler extends BaseThingHandler {
 
     @Override
     public void handleConfigurationUpdate(final Map<String, Object> configurationParameters) {
+        cancelInitialization();
         unregisterDeviceConfiguration();
+        deviceConfig = null;
         super.handleConfigurationUpdate(configurationParameters);
     }
 
+    /**
+     * @return The configuration of the device once the thing has been initialized, else null.
+     */
+    public DeviceConfiguration getActiveDeviceConfiguration() {
+        return deviceConfig;
+    }
+
+    /**
+     * @return The number of property and state updates which were skipped as nothing had changed.
+     */
+    public long getSuppressedUpdateCount() {
+        return suppressedUpdates.get();
+    }
+
+    /**
+     * @return The number of commands which were dropped as duplicates.
+     */
+    public long getSuppressedCommandCount() {
+        return duplicateFilter.getSuppressedCount();
+    }
+
     @Override
     protected void updateStatus(final ThingStatus status) {
         final ThingStatus currentStatus = getThing().getStatus();
@@ -120,50 +219,283 @@ public class ZMoteHandler extends BaseThingHandler {
         }
     }
 
-    private void onChannelOnlineCommand(final ChannelUID channelUID, final Command command, final ZMoteConfig config) {
+    private void onChannelOnlineCommand(final ChannelUID channelUID, final Command command,
+            final DeviceConfiguration config) {
         if (command instanceof RefreshType) {
-            updateChannelOnlineState(config);
+            publishOnlineState(isThingOnline() ? OnOffType.ON : OnOffType.OFF, true);
         }
     }
 
     private void onChannelSendCodeCommand(final ChannelUID channelUID, final Command command,
-            final ZMoteConfig config) {
-        if (!isThingOnline() || (command == null) || (command instanceof RefreshType)) {
+            final DeviceConfiguration config, final Deadline deadline) {
+        if ((command == null) || (command instanceof RefreshType) || (zmoteService == null)) {
             return;
         }
 
-        if ((command != null) && (zmoteService != null)) {
-            final String code = command.toString();
-            zmoteService.sendCode(config, code);
+        final String code = command.toString();
+
+        if (isDuplicateCommand(channelUID, code, config)) {
+            return;
+        }
+
+        if (isThingOnline()) {
+            zmoteService.sendCode(config, code, 1, getChannelPriority(channelUID), deadline);
+
+        } else if (zmoteService.bufferCode(config, code, getChannelPriority(channelUID))) {
+            logBufferedCommand(channelUID, code);
+        }
+    }
+
+    private void onChannelSendKeyCommand(final ChannelUID channelUID, final Command command,
+            final DeviceConfiguration config, final Deadline deadline) {
+        if ((command == null) || (command instanceof RefreshType) || (zmoteService == null)) {
+            return;
+        }
+
+        final String button = command.toString();
+
+        // releasing a held button must work even if the thing went offline meanwhile
+        if (HOLD_STOP.equalsIgnoreCase(button.trim())) {
+            zmoteService.stopHold(config);
+            return;
+        }
+
+        if (button.toUpperCase(Locale.ENGLISH).startsWith(HOLD_START_PREFIX)) {
+            if (isThingOnline()) {
+                zmoteService.startHold(config, button.substring(HOLD_START_PREFIX.length()).trim(),
+                        getChannelPriority(channelUID));
+            }
+            return;
+        }
+
+        if (isDuplicateCommand(channelUID, button, config)) {
+            return;
+        }
+
+        if (isThingOnline()) {
+            zmoteService.sendKey(config, button, 1, getChannelPriority(channelUID), deadline);
+
+        } else if (zmoteService.bufferKey(config, button, getChannelPriority(channelUID))) {
+            logBufferedCommand(channelUID, button);
+        }
+    }
+
+    private void logBufferedCommand(final ChannelUID channelUID, final String value) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Thing is offline, buffered command '{}' on channel '{}'.", value, channelUID);
         }
     }
 
-    private void onChannelSendKeyCommand(final ChannelUID channelUID, final Command command, final ZMoteConfig config) {
+    private void onChannelSendSequenceCommand(final ChannelUID channelUID, final Command command,
+            final DeviceConfiguration config, final Deadline deadline) {
         if (!isThingOnline() || (command == null) || (command instanceof RefreshType)) {
             return;
         }
 
-        if ((command != null) && (zmoteService != null)) {
-            final String button = command.toString();
-            zmoteService.sendKey(config, button);
+        if (zmoteService != null) {
+            final List<Step> steps;
+
+            try {
+                steps = Step.parse(command.toString());
+
+            } catch (final IllegalArgumentException e) {
+                // a typo in a rule is not a device error
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Ignored invalid key sequence on channel '{}': {}", channelUID, e.getMessage());
+                }
+                return;
+            }
+
+            zmoteService.sendKeys(config, steps, getChannelPriority(channelUID), deadline);
+        }
+    }
+
+    private void onChannelStepperCommand(final ChannelUID channelUID, final Command command,
+            final DeviceConfiguration config) {
+        final Channel channel = getThing().getChannel(channelUID.getId());
+
+        if ((command == null) || (channel == null) || (zmoteService == null)) {
+            return;
+        }
+
+        final Object upKey = channel.getConfiguration().get(ZMoteBindingConstants.CHANNEL_CONFIG_UP_KEY);
+        final Object downKey = channel.getConfiguration().get(ZMoteBindingConstants.CHANNEL_CONFIG_DOWN_KEY);
+
+        if ((upKey == null) || (downKey == null)) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("The up and down keys of channel '{}' have not been configured!", channelUID);
+            }
+            return;
+        }
+
+        final Stepper stepper = steppers.computeIfAbsent(channelUID.getId(),
+                key -> new Stepper(getStepperSteps(channel)));
+
+        if (command instanceof RefreshType) {
+            updateState(channelUID, new PercentType(stepper.getPercent()));
+            return;
+        }
+
+        if (!isThingOnline()) {
+            return;
         }
+
+        final boolean start;
+
+        if (command instanceof PercentType) {
+            start = stepper.moveTo(((PercentType) command).intValue());
+
+        } else if (command instanceof OnOffType) {
+            start = stepper.moveTo((command == OnOffType.ON) ? 100 : 0);
+
+        } else if (command instanceof IncreaseDecreaseType) {
+            start = stepper.moveBy((command == IncreaseDecreaseType.INCREASE) ? 1 : -1);
+
+        } else {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Don't know how to handle command {} on channel {}!", command, channelUID);
+            }
+            return;
+        }
+
+        // targets arriving while the stepper is sending are picked up by the running task
+        if (start) {
+            final Runnable runnable = new Runnable() {
+                @Override
+                public void run() {
+                    runStepper(channelUID, stepper, upKey.toString(), downKey.toString(), config);
+                }
+            };
+
+            // the presses block for a while, so they don't run on the shared scheduler
+            zmoteService.getWorkerExecutor().submit(runnable);
+        }
+    }
+
+    // stepper channels are added by the user, so they are recognized by their type
+    private boolean isStepperChannel(final ChannelUID channelUID) {
+        final Channel channel = getThing().getChannel(channelUID.getId());
+        final ChannelTypeUID channelType = (channel != null) ? channel.getChannelTypeUID() : null;
+
+        return (channelType != null) && ZMoteBindingConstants.CHANNEL_STEPPER.equals(channelType.getId());
     }
 
-    private ZMoteConfig getZMoteConfig() {
-        final ZMoteConfig config = getConfigAs(ZMoteConfig.class);
+    private void runStepper(final ChannelUID channelUID, final Stepper stepper, final String upKey,
+            final String downKey, final DeviceConfiguration config) {
+        try {
+            int delta;
+
+            while ((delta = stepper.nextDelta()) != 0) {
+                // a long move may take longer than a single command
+                final Deadline deadline = Deadline
+                        .after(TimeUnit.SECONDS.toMillis(ZMoteBindingConstants.COMMAND_DEADLINE)
+                                + (Math.abs(delta) * (long) ZMoteBindingConstants.STEPPER_PRESS_DEADLINE));
+
+                if (!zmoteService.sendKeyPresses(config, (delta > 0) ? upKey : downKey, Math.abs(delta),
+                        getChannelPriority(channelUID), deadline)) {
+                    stepper.abort();
+                    return;
+                }
+
+                stepper.applied(delta);
+                updateState(channelUID, new PercentType(stepper.getPercent()));
+            }
+
+        } catch (final DeadlineExceededException e) {
+            stepper.abort();
+
+            if (logger.isWarnEnabled()) {
+                logger.warn("Dropped stepper command on channel '{}': {}", channelUID, e.getMessage());
+            }
+
+        } catch (final Exception e) {
+            stepper.abort();
+
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to process stepper command on channel '{}'!", channelUID);
+            }
+            updateStatusFromException(e);
+        }
+    }
+
+    private int getStepperSteps(final Channel channel) {
+        final Object value = channel.getConfiguration().get(ZMoteBindingConstants.CHANNEL_CONFIG_STEPS);
+
+        try {
+            final int steps = (value != null) ? new BigDecimal(value.toString()).intValue()
+                    : ZMoteBindingConstants.DEFAULT_STEPPER_STEPS;
+            return (steps > 0) ? steps : ZMoteBindingConstants.DEFAULT_STEPPER_STEPS;
+
+        } catch (final NumberFormatException e) {
+            return ZMoteBindingConstants.DEFAULT_STEPPER_STEPS;
+        }
+    }
+
+    /**
+     * Checks if the same command has just been sent to the channel, e.g. by a double
+     * tap or a rule reacting to several events. Sending a toggle code like power twice
+     * would undo the first command.
+     */
+    private boolean isDuplicateCommand(final ChannelUID channelUID, final String value,
+            final DeviceConfiguration config) {
+        if (!duplicateFilter.isDuplicate(channelUID.getId() + "/" + value, config.getSuppressionWindow())) {
+            return false;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Dropped duplicate command '{}' on channel '{}'.", value, channelUID);
+        }
+
+        return true;
+    }
+
+    private CommandPriority getChannelPriority(final ChannelUID channelUID) {
+        CommandPriority priority = channelPriorities.get(channelUID.getId());
+
+        if (priority == null) {
+            final Channel channel = getThing().getChannel(channelUID.getId());
+            final Object value = (channel != null)
+                    ? channel.getConfiguration().get(ZMoteBindingConstants.CHANNEL_CONFIG_PRIORITY) : null;
+
+            priority = CommandPriority.parse((value != null) ? value.toString() : null, CommandPriority.NORMAL);
+            channelPriorities.put(channelUID.getId(), priority);
+        }
+
+        return priority;
+    }
+
+    /**
+     * Returns the resolved configuration. It is read from the thing only once after
+     * initialization or a configuration update, so commands don't have to parse it.
+     */
+    private DeviceConfiguration getDeviceConfiguration() {
+        DeviceConfiguration config = deviceConfig;
 
         if (config == null) {
+            config = readDeviceConfiguration();
+            deviceConfig = config;
+        }
+
+        return config;
+    }
+
+    private DeviceConfiguration readDeviceConfiguration() {
+        final ZMoteConfig zmoteConfig = getConfigAs(ZMoteConfig.class);
+
+        if (zmoteConfig == null) {
             throw new ConfigurationException("Failed to read thing configuration!");
         }
 
-        config.setAutoUrl(getThing().getProperties().get(ZMoteBindingConstants.PROP_URL));
+        zmoteConfig.setAutoUrl(getThing().getProperties().get(ZMoteBindingConstants.PROP_URL));
 
-        return config;
+        return DeviceConfiguration.fromConfig(getThing().getUID().toString(), zmoteConfig);
     }
 
-    private ZMoteConfig getZMoteConfigValidated() {
-        final ZMoteConfig config = getZMoteConfig();
+    private DeviceConfiguration getDeviceConfigurationValidated() {
+        return validateDeviceConfiguration(getDeviceConfiguration());
+    }
 
+    private DeviceConfiguration validateDeviceConfiguration(final DeviceConfiguration config) {
         if (config.getUuid() == null) {
             throw new ConfigurationException("Thing has no UUID set!");
         }
@@ -179,18 +511,68 @@ public class ZMoteHandler extends BaseThingHandler {
         return ThingStatus.ONLINE.equals(getThing().getStatus());
     }
 
-    private boolean isZMoteOnline(final ZMoteConfig config) {
+    private boolean isZMoteOnline(final DeviceConfiguration config) {
 
-        final String overrideUrl = config.getOverrideUrl();
-
-        if ((overrideUrl != null) && !overrideUrl.isEmpty()) {
+        if (config.hasOverrideUrl()) {
             return ((zmoteService != null) && zmoteService.checkOnline(config));
         }
 
         return ((zmoteDiscoveryService != null) && zmoteDiscoveryService.isOnline(config.getUuid()));
     }
 
-    private void registerDeviceConfiguration(final ZMoteConfig config) {
+    private void loadDeviceConfiguration(final long generation) {
+        try {
+            final DeviceConfiguration config = readDeviceConfiguration();
+            registerDeviceConfiguration(config);
+
+            final boolean current;
+
+            synchronized (initLock) {
+                current = (generation == initGeneration);
+
+                if (current) {
+                    registeredConfig = config;
+                    deviceConfig = config;
+                }
+            }
+
+            if (!current) {
+                // superseded or disposed while loading, which has already unregistered the previous configuration
+                unregisterDeviceConfiguration(config);
+                return;
+            }
+
+        } catch (final Exception e) {
+            synchronized (initLock) {
+                if (generation != initGeneration) {
+                    return;
+                }
+            }
+            updateStatusFromException(e);
+        }
+
+        synchronized (initLock) {
+            if (generation == initGeneration) {
+                initFuture = null;
+                startStatusUpdateWorker(); // sets the thing ONLINE or OFFLINE
+            }
+        }
+    }
+
+    private void cancelInitialization() {
+        synchronized (initLock) {
+            ++initGeneration;
+
+            if (initFuture != null) {
+                initFuture.cancel(true);
+                initFuture = null;
+            }
+
+            stopStatusUpdateWorker();
+        }
+    }
+
+    private void registerDeviceConfiguration(final DeviceConfiguration config) {
         if (zmoteService == null) {
             throw new IllegalStateException("Internal plugin error: The ZMote service is not available!");
         }
@@ -198,13 +580,26 @@ public class ZMoteHandler extends BaseThingHandler {
     }
 
     private void unregisterDeviceConfiguration() {
+        final DeviceConfiguration config;
+
+        synchronized (initLock) {
+            config = registeredConfig;
+            registeredConfig = null;
+        }
+
+        // nothing to do if the configuration was never registered, e.g. as it is invalid
+        if (config != null) {
+            unregisterDeviceConfiguration(config);
+        }
+    }
+
+    private void unregisterDeviceConfiguration(final DeviceConfiguration config) {
         try {
             if (zmoteService == null) {
                 throw new IllegalStateException("Internal plugin error: The ZMote service is not available!");
             }
 
-            final ZMoteConfig zmoteConfig = getZMoteConfig();
-            zmoteService.unregisterConfiguration(zmoteConfig);
+            zmoteService.unregisterConfiguration(config);
 
         } catch (final Exception e) {
             // ignore it, the configuration was probably never registered as it is invalid
@@ -224,8 +619,16 @@ public class ZMoteHandler extends BaseThingHandler {
             }
         };
 
-        statusUpdateFuture = scheduler.scheduleWithFixedDelay(runnable, 0,
-                ZMoteBindingConstants.DISCOVERY_UPDATE_INTERVAL, TimeUnit.SECONDS);
+        final ExecutorService virtualExecutor = (zmoteService != null) ? zmoteService.getVirtualThreadExecutor()
+                : null;
+
+        if (virtualExecutor != null) {
+            statusUpdateFuture = VirtualThreads.scheduleWithFixedDelay(virtualExecutor, runnable, 0,
+                    ZMoteBindingConstants.DISCOVERY_UPDATE_INTERVAL, TimeUnit.SECONDS);
+        } else {
+            statusUpdateFuture = scheduler.scheduleWithFixedDelay(runnable, 0,
+                    ZMoteBindingConstants.DISCOVERY_UPDATE_INTERVAL, TimeUnit.SECONDS);
+        }
     }
 
     private void stopStatusUpdateWorker() {
@@ -241,15 +644,28 @@ public class ZMoteHandler extends BaseThingHandler {
         }
     }
 
-    private void updateChannelOnlineState(final ZMoteConfig config) {
+    private void updateChannelOnlineState(final DeviceConfiguration config) {
         if (isThingOnline()) {
-            updateState(ZMoteBindingConstants.CHANNEL_ONLINE, OnOffType.ON);
+            publishOnlineState(OnOffType.ON, false);
         } else {
-            updateState(ZMoteBindingConstants.CHANNEL_ONLINE, OnOffType.OFF);
+            publishOnlineState(OnOffType.OFF, false);
+        }
+    }
+
+    /**
+     * Posts the online state unless it is unchanged, as every state update is an event on the bus.
+     */
+    private void publishOnlineState(final OnOffType state, final boolean force) {
+        if (!force && (state == publishedOnlineState)) {
+            suppressedUpdates.incrementAndGet();
+            return;
         }
+
+        publishedOnlineState = state;
+        updateState(ZMoteBindingConstants.CHANNEL_ONLINE, state);
     }
 
-    private void updateThingOnlineStatus(final ZMoteConfig zmoteConfig) {
+    private void updateThingOnlineStatus(final DeviceConfiguration zmoteConfig) {
         final ThingStatusInfo thingStatusInfo = getThing().getStatusInfo();
         final ThingStatus thingStatus = thingStatusInfo.getStatus();
         final ThingStatusDetail thingStatusDetail = thingStatusInfo.getStatusDetail();
@@ -262,7 +678,7 @@ public class ZMoteHandler extends BaseThingHandler {
         if (ThingStatus.OFFLINE.equals(thingStatus)) {
             if (ThingStatusDetail.CONFIGURATION_ERROR.equals(thingStatusDetail)) {
                 try {
-                    getZMoteConfigValidated();
+                    getDeviceConfigurationValidated();
                 } catch (final Exception e) {
                     return; // still invalid
                 }
@@ -278,7 +694,7 @@ public class ZMoteHandler extends BaseThingHandler {
     }
 
     private void updateThingProperties(final ZMoteDevice device) {
-        final Map<String, String> properties = editProperties();
+        final Map<String, String> properties = new HashMap<>();
 
         properties.put(ZMoteBindingConstants.PROP_UUID, device.getUuid());
         properties.put(ZMoteBindingConstants.PROP_URL, device.getUrl());
@@ -287,7 +703,65 @@ public class ZMoteHandler extends BaseThingHandler {
         properties.put(ZMoteBindingConstants.PROP_REVISION, device.getRevision());
         properties.put(ZMoteBindingConstants.PROP_TYPE, device.getType());
 
-        updateProperties(properties);
+        if (device.getNetworkInterface() != null) {
+            properties.put(ZMoteBindingConstants.PROP_INTERFACE, device.getNetworkInterface());
+        }
+
+        // every property update may be written to the thing database, so only publish changes
+        final Map<String, String> published = publishedProperties;
+        final Map<String, String> changed = new HashMap<>();
+
+        for (final Map.Entry<String, String> property : properties.entrySet()) {
+            if ((published == null) || !published.containsKey(property.getKey())
+                    || !Objects.equals(published.get(property.getKey()), property.getValue())) {
+                changed.put(property.getKey(), property.getValue());
+            }
+        }
+
+        if (changed.isEmpty()) {
+            suppressedUpdates.incrementAndGet();
+            return;
+        }
+
+        final Map<String, String> thingProperties = editProperties();
+        thingProperties.putAll(changed);
+        updateProperties(thingProperties);
+
+        publishedProperties = properties;
+    }
+
+    /**
+     * Logs the statistics of this thing every few minutes. They are logged at INFO level
+     * if the commands of this thing had to wait or were suppressed since the last summary,
+     * else at DEBUG level. They are not stored as thing properties, as this would write
+     * the thing database each time.
+     */
+    private void logStatistics(final DeviceConfiguration zmoteConfig) {
+        final long now = System.currentTimeMillis();
+
+        if ((now < nextStatisticsUpdate) || (zmoteService == null)) {
+            return;
+        }
+
+        nextStatisticsUpdate = now + TimeUnit.SECONDS.toMillis(ZMoteBindingConstants.STATISTICS_INTERVAL);
+
+        final TransmitLock.WaitStatistics waitStatistics = zmoteService.getWaitStatistics(zmoteConfig.getUuid())
+                .get(getThing().getUID().toString());
+        // the suppressed updates grow with every status update, so they don't count as a change
+        final String statistics = String.format("waited %s, suppressed commands %d",
+                (waitStatistics != null) ? waitStatistics : "never", getSuppressedCommandCount());
+        final boolean changed = !statistics.equals(loggedStatistics);
+
+        if (changed && logger.isInfoEnabled()) {
+            logger.info("Statistics of thing {}: {}, suppressed updates {}", getThing().getUID(), statistics,
+                    getSuppressedUpdateCount());
+
+        } else if (!changed && logger.isDebugEnabled()) {
+            logger.debug("Statistics of thing {}: {}, suppressed updates {}", getThing().getUID(), statistics,
+                    getSuppressedUpdateCount());
+        }
+
+        loggedStatistics = statistics;
     }
 
     private void updateStatusFromDiscoveryService() {
@@ -297,17 +771,24 @@ public class ZMoteHandler extends BaseThingHandler {
                 return; // no discovery service available right now
             }
 
-            ZMoteConfig zmoteConfig = getZMoteConfig(); // config might not be valid yet without discovery
+            DeviceConfiguration zmoteConfig = getDeviceConfiguration(); // might not be valid yet without discovery
             final ZMoteDevice zmoteDevice = zmoteDiscoveryService.getDevice(zmoteConfig.getUuid());
 
             if (zmoteDevice != null) {
                 updateThingProperties(zmoteDevice);
-                zmoteConfig = getZMoteConfigValidated();
+                zmoteConfig = zmoteConfig.withAutoUrl(zmoteDevice.getUrl());
+
+                if (deviceConfig != null) {
+                    deviceConfig = zmoteConfig; // keep it unless the configuration was reset meanwhile
+                }
+
+                validateDeviceConfiguration(zmoteConfig);
             }
 
             // thing has to be updated first, then the channel!
             updateThingOnlineStatus(zmoteConfig);
             updateChannelOnlineState(zmoteConfig);
+            logStatistics(zmoteConfig);
 
         } catch (final Exception e) {
             updateStatusFromException(e);
@@ -333,7 +814,7 @@ public class ZMoteHandler extends BaseThingHandler {
                 updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.NONE, e.getMessage());
             }
 
-            updateState(ZMoteBindingConstants.CHANNEL_ONLINE, OnOffType.OFF);
+            publishOnlineState(OnOffType.OFF, false);
 
         } catch (final Exception ex) {
             // this is usually called from an exception handler
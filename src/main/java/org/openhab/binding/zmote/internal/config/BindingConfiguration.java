@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.config;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only access to the binding-wide configuration as it is passed to the
+ * OSGi services by the configuration admin.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class BindingConfiguration {
+
+    private final Logger logger = LoggerFactory.getLogger(BindingConfiguration.class);
+    private final Map<String, Object> properties;
+
+    /**
+     * Creates a new binding configuration.
+     *
+     * @param properties The configuration properties or null if none are available.
+     */
+    public BindingConfiguration(final Map<String, Object> properties) {
+        this.properties = (properties != null) ? properties : Collections.<String, Object> emptyMap();
+    }
+
+    /**
+     * @return The trimmed value of the given key or the default value if it is not set.
+     */
+    public String getString(final String key, final String defaultValue) {
+        final Object value = properties.get(key);
+        final String stringValue = (value != null) ? StringUtils.trimToNull(value.toString()) : null;
+        return (stringValue != null) ? stringValue : defaultValue;
+    }
+
+    /**
+     * @return The value of the given key split at commas or an empty list if it is not set.
+     */
+    public List<String> getStringList(final String key) {
+        final String value = getString(key, null);
+        final List<String> values = new ArrayList<>();
+
+        if (value != null) {
+            for (final String item : value.split(",")) {
+                final String trimmedItem = StringUtils.trimToNull(item);
+
+                if (trimmedItem != null) {
+                    values.add(trimmedItem);
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * @return The integer value of the given key or the default value if it is not set or invalid.
+     */
+    public int getInt(final String key, final int defaultValue) {
+        final String value = getString(key, null);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return new BigDecimal(value).intValue();
+
+        } catch (final NumberFormatException e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Ignoring invalid value '{}' for binding option '{}'!", value, key);
+            }
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return The boolean value of the given key or the default value if it is not set.
+     */
+    public boolean getBoolean(final String key, final boolean defaultValue) {
+        final String value = getString(key, null);
+        return (value != null) ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
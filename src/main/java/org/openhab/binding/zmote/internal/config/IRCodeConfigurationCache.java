@@ -8,8 +8,10 @@
  */
 package org.openhab.binding.zmote.internal.config;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -68,6 +70,32 @@ public class IRCodeConfigurationCache {
         return codeCache.get(buttonKey.toLowerCase(Locale.getDefault()));
     }
 
+    /**
+     * Gets the IR codes for the given button keys. The configuration file is
+     * checked for modifications only once for all keys.
+     *
+     * @param buttons The button keys to lookup.
+     *
+     * @return The IR codes in the same order, containing null for keys which do not exist.
+     */
+    public List<IRCode> getCodes(final List<String> buttons) {
+        final List<IRCode> codes = new ArrayList<>(buttons.size());
+
+        updateCache();
+
+        for (final String button : buttons) {
+            final String buttonKey = StringUtils.trimToNull(button);
+
+            if (buttonKey == null) {
+                throw new IllegalArgumentException("A button cannot be null or empty!");
+            }
+
+            codes.add(codeCache.get(buttonKey.toLowerCase(Locale.getDefault())));
+        }
+
+        return codes;
+    }
+
     private boolean updateCache() {
 
         if (!remoteConfiguration.isModified()) {
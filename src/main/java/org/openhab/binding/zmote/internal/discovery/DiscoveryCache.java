@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.discovery;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.openhab.binding.zmote.internal.model.ZMoteDevice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+
+/**
+ * Stores the last known ZMote devices in a small JSON file, so they can be
+ * restored after a restart without waiting for the next device broadcast.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class DiscoveryCache {
+
+    private final Logger logger = LoggerFactory.getLogger(DiscoveryCache.class);
+    private final File file;
+
+    /**
+     * Creates a new cache backed by the given file. The file and its parent
+     * directory are created when the cache is saved for the first time.
+     *
+     * @param file The cache file.
+     */
+    public DiscoveryCache(final File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null!");
+        }
+
+        this.file = file;
+    }
+
+    /**
+     * Reads the devices from the cache file.
+     *
+     * @return The cached devices or an empty list if the file does not exist or is invalid.
+     */
+    public List<ZMoteDevice> load() {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+
+        try (final Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            final ZMoteDevice[] devices = new Gson().fromJson(reader, ZMoteDevice[].class);
+            final List<ZMoteDevice> validDevices = new ArrayList<>();
+
+            if (devices != null) {
+                for (final ZMoteDevice device : Arrays.asList(devices)) {
+                    if ((device != null) && (device.getUuid() != null) && (device.getUrl() != null)) {
+                        validDevices.add(device);
+                    }
+                }
+            }
+
+            return validDevices;
+
+        } catch (final Exception e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Ignoring invalid discovery cache file '{}'.", file.getAbsolutePath(), e);
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Replaces the content of the cache file with the given devices.
+     *
+     * @param devices The devices to store.
+     */
+    public void save(final Collection<ZMoteDevice> devices) {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        final File tempFile = new File(directory, file.getName() + ".tmp");
+
+        try {
+            if ((directory != null) && !directory.isDirectory() && !directory.mkdirs()) {
+                throw new IllegalStateException(String.format("Cannot create directory '%s'!", directory));
+            }
+
+            try (final Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile),
+                    StandardCharsets.UTF_8)) {
+                new Gson().toJson(devices.toArray(new ZMoteDevice[devices.size()]), writer);
+            }
+
+            // replace the old file only once the new one was written completely
+            if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+                throw new IllegalStateException(String.format("Cannot replace file '%s'!", file));
+            }
+
+        } catch (final Exception e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to write discovery cache file '{}'.", file.getAbsolutePath(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.discovery;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.binding.zmote.internal.model.ZMoteDevice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers discovered devices to the registered {@link IDiscoveryListener}s on
+ * a worker thread, so the caller never blocks on slow listeners. The queue is
+ * bounded and coalesces entries per device UUID, i.e. only the latest state of
+ * a device is kept until it has been delivered.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class DiscoveryDispatcher {
+
+    private final Logger logger = LoggerFactory.getLogger(DiscoveryDispatcher.class);
+
+    private final Map<String, ZMoteDevice> pending = new LinkedHashMap<>();
+    private final List<IDiscoveryListener> listeners;
+    private final Executor executor;
+    private final int capacity;
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private boolean running = false;
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param listeners The listeners to notify. The list is read on every delivery.
+     * @param executor The executor used to run the delivery worker.
+     * @param capacity The maximum number of devices waiting for delivery.
+     */
+    public DiscoveryDispatcher(final List<IDiscoveryListener> listeners, final Executor executor,
+            final int capacity) {
+        if ((listeners == null) || (executor == null) || (capacity < 1)) {
+            throw new IllegalArgumentException("Invalid discovery dispatcher configuration!");
+        }
+
+        this.listeners = listeners;
+        this.executor = executor;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queues the given device for delivery. This method never blocks. If the device
+     * is already waiting for delivery, the queued state is replaced. If the queue is
+     * full, the device is dropped.
+     *
+     * @param device The device to deliver.
+     *
+     * @return True if the device was queued, false if it was dropped.
+     */
+    public boolean dispatch(final ZMoteDevice device) {
+        final boolean startWorker;
+
+        synchronized (pending) {
+            if (pending.containsKey(device.getUuid())) {
+                pending.put(device.getUuid(), device);
+                coalescedCount.incrementAndGet();
+                return true;
+            }
+
+            if (pending.size() >= capacity) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+
+            pending.put(device.getUuid(), device);
+            startWorker = !running;
+            running = true;
+        }
+
+        if (startWorker) {
+            startWorker();
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes all devices which are waiting for delivery.
+     */
+    public void clear() {
+        synchronized (pending) {
+            pending.clear();
+        }
+    }
+
+    /**
+     * @return The number of queued devices which were replaced by a newer state.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return The number of devices which were dropped as the queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void deliverPending() {
+        while (true) {
+            final ZMoteDevice device;
+
+            synchronized (pending) {
+                final Iterator<ZMoteDevice> iterator = pending.values().iterator();
+
+                if (!iterator.hasNext()) {
+                    running = false;
+                    return;
+                }
+
+                device = iterator.next();
+                iterator.remove();
+            }
+
+            for (final IDiscoveryListener listener : listeners) {
+                try {
+                    listener.deviceDiscovered(device);
+
+                } catch (final Exception e) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Exception while notifying discovery listener.", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void startWorker() {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    deliverPending();
+                }
+            });
+
+        } catch (final RuntimeException e) {
+            synchronized (pending) {
+                droppedCount.addAndGet(pending.size());
+                pending.clear();
+                running = false;
+            }
+
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to start discovery dispatcher!", e);
+            }
+        }
+    }
+}
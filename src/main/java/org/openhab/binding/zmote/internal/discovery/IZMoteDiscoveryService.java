@@ -8,6 +8,10 @@
  */
 package org.openhab.binding.zmote.internal.discovery;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
 import org.openhab.binding.zmote.internal.model.ZMoteDevice;
 
 /**
@@ -47,9 +51,29 @@ public interface IZMoteDiscoveryService {
      */
     void removeListener(IDiscoveryListener listener);
 
+    /**
+     * Starts an active scan and sweep for ZMote devices and collects all devices
+     * which answer. The scan completes early once no new device has answered for
+     * a short time or once all previously known devices have answered. All
+     * listeners will be informed about any discoveries as well.
+     *
+     * @param window The maximum duration of the scan.
+     *
+     * @return A future which is completed with the devices found.
+     */
+    CompletableFuture<Collection<ZMoteDevice>> scan(Duration window);
+
     /**
      * Starts an active scan for ZMote devices. All listeners will be informed about
      * any discoveries.
      */
     void startScan();
+
+    /**
+     * Starts probing the configured address range for ZMote devices, which is
+     * used for devices that cannot be reached by multicasts. All listeners will be
+     * informed about any discoveries as soon as a device answers. Does nothing if
+     * no address range has been configured.
+     */
+    void startSweep();
 }
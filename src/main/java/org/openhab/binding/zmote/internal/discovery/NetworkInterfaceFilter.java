@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.discovery;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the network interfaces which are used for multicast discovery.
+ * Interfaces are eligible if they are up, support multicast, are not a loopback
+ * interface and have an IPv4 address. Include and exclude patterns match the
+ * interface name and may end with a '*' wildcard, e.g. "docker*".
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class NetworkInterfaceFilter {
+
+    private final Logger logger = LoggerFactory.getLogger(NetworkInterfaceFilter.class);
+
+    private final List<String> includes;
+    private final List<String> excludes;
+
+    /**
+     * Creates a new filter.
+     *
+     * @param includes The interface names to use or an empty list to use all eligible interfaces.
+     * @param excludes The interface names which should never be used.
+     */
+    public NetworkInterfaceFilter(final List<String> includes, final List<String> excludes) {
+        this.includes = new ArrayList<>(includes);
+        this.excludes = new ArrayList<>(excludes);
+    }
+
+    /**
+     * Enumerates all network interfaces which pass this filter.
+     *
+     * @return The eligible interfaces, never null.
+     */
+    public List<NetworkInterface> getEligibleInterfaces() {
+        final List<NetworkInterface> eligible = new ArrayList<>();
+
+        try {
+            final Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+
+            if (interfaces == null) {
+                return eligible;
+            }
+
+            for (final NetworkInterface networkInterface : Collections.list(interfaces)) {
+                if (isEligible(networkInterface)) {
+                    eligible.add(networkInterface);
+                }
+            }
+
+        } catch (final SocketException e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to enumerate network interfaces!", e);
+            }
+        }
+
+        return eligible;
+    }
+
+    /**
+     * Finds the interface whose IPv4 subnet contains the given address.
+     *
+     * @param interfaces The interfaces to search.
+     * @param address The address to look up.
+     *
+     * @return The matching interface or null if the address is not on a local subnet.
+     */
+    public static NetworkInterface findInterface(final List<NetworkInterface> interfaces, final InetAddress address) {
+        if (!(address instanceof Inet4Address)) {
+            return null;
+        }
+
+        final int addressBits = toInt(address);
+
+        for (final NetworkInterface networkInterface : interfaces) {
+            for (final InterfaceAddress interfaceAddress : networkInterface.getInterfaceAddresses()) {
+                final InetAddress localAddress = interfaceAddress.getAddress();
+
+                if (!(localAddress instanceof Inet4Address)) {
+                    continue;
+                }
+
+                final int prefixLength = interfaceAddress.getNetworkPrefixLength();
+                final int mask = (prefixLength <= 0) ? 0 : (-1 << (32 - Math.min(prefixLength, 32)));
+
+                if ((toInt(localAddress) & mask) == (addressBits & mask)) {
+                    return networkInterface;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The first IPv4 address of the given interface or null if it has none.
+     */
+    public static InetAddress getIPv4Address(final NetworkInterface networkInterface) {
+        for (final InterfaceAddress interfaceAddress : networkInterface.getInterfaceAddresses()) {
+            if (interfaceAddress.getAddress() instanceof Inet4Address) {
+                return interfaceAddress.getAddress();
+            }
+        }
+        return null;
+    }
+
+    private boolean isEligible(final NetworkInterface networkInterface) throws SocketException {
+        final String name = networkInterface.getName();
+
+        if (!networkInterface.isUp() || networkInterface.isLoopback() || !networkInterface.supportsMulticast()
+                || (getIPv4Address(networkInterface) == null)) {
+            return false;
+        }
+
+        if (matchesAny(excludes, name)) {
+            return false;
+        }
+
+        return includes.isEmpty() || matchesAny(includes, name);
+    }
+
+    private static boolean matchesAny(final List<String> patterns, final String name) {
+        final String lowerName = name.toLowerCase(Locale.ENGLISH);
+
+        for (final String pattern : patterns) {
+            final String lowerPattern = pattern.toLowerCase(Locale.ENGLISH);
+
+            if (lowerPattern.endsWith("*")) {
+                if (lowerName.startsWith(lowerPattern.substring(0, lowerPattern.length() - 1))) {
+                    return true;
+                }
+            } else if (lowerName.equals(lowerPattern)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static int toInt(final InetAddress address) {
+        final byte[] bytes = address.getAddress();
+        return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.discovery;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.zmote.internal.util.LruMap;
+
+/**
+ * Limits the number of packets accepted per source address using a token
+ * bucket for each source. Only the most recently active sources are tracked.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class PacketRateLimiter {
+
+    private final Map<InetAddress, TokenBucket> buckets;
+    private final double packetsPerSecond;
+    private final double burstSize;
+
+    /**
+     * Creates a new rate limiter.
+     *
+     * @param packetsPerSecond The sustained number of packets accepted per source and second.
+     * @param burstSize The number of packets a source may send at once.
+     * @param maxSources The maximum number of sources which are tracked.
+     */
+    public PacketRateLimiter(final double packetsPerSecond, final int burstSize, final int maxSources) {
+        if ((packetsPerSecond <= 0) || (burstSize < 1)) {
+            throw new IllegalArgumentException("Invalid rate limit!");
+        }
+
+        this.buckets = new LruMap<>(maxSources);
+        this.packetsPerSecond = packetsPerSecond;
+        this.burstSize = burstSize;
+    }
+
+    /**
+     * Checks if a packet from the given source should be accepted.
+     *
+     * @param source The source address of the packet.
+     *
+     * @return True if the packet is within the rate limit, else false.
+     */
+    public synchronized boolean tryAcquire(final InetAddress source) {
+        final long currentTime = System.nanoTime();
+        TokenBucket bucket = buckets.get(source);
+
+        if (bucket == null) {
+            bucket = new TokenBucket(burstSize, currentTime);
+            buckets.put(source, bucket);
+        }
+
+        final double elapsedSeconds = (currentTime - bucket.lastRefill) / (double) TimeUnit.SECONDS.toNanos(1);
+        bucket.tokens = Math.min(burstSize, bucket.tokens + (elapsedSeconds * packetsPerSecond));
+        bucket.lastRefill = currentTime;
+
+        if (bucket.tokens < 1) {
+            return false;
+        }
+
+        bucket.tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Forgets all sources.
+     */
+    public synchronized void clear() {
+        buckets.clear();
+    }
+
+    private static class TokenBucket {
+
+        private double tokens;
+        private long lastRefill;
+
+        public TokenBucket(final double tokens, final long lastRefill) {
+            this.tokens = tokens;
+            this.lastRefill = lastRefill;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.discovery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import org.openhab.binding.zmote.internal.model.ZMoteDevice;
+
+/**
+ * Collects the devices which answered a scan. The scan is complete when the
+ * scan window has elapsed, when no new device has answered for the settle
+ * time or when all expected devices have answered. While further replies are
+ * pending, e.g. from a running subnet sweep, only the scan window ends the scan.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class ScanCollector implements IDiscoveryListener {
+
+    private final CompletableFuture<Collection<ZMoteDevice>> future = new CompletableFuture<>();
+    private final Map<String, ZMoteDevice> devices = new LinkedHashMap<>();
+    private final Set<String> expectedUuids;
+
+    private final long startTime;
+    private final long window;
+    private final long settleTime;
+    private final long expectedSettleTime;
+    private final BooleanSupplier pending;
+
+    private long lastReplyTime = 0;
+
+    /**
+     * Creates a new collector, the scan window starts right away.
+     *
+     * @param expectedUuids The devices which are expected to answer.
+     * @param window The maximum duration of the scan in milliseconds.
+     * @param settleTime The time in milliseconds without new replies after which the scan is complete.
+     * @param expectedSettleTime The time in milliseconds without new replies after which the scan is complete
+     *            once all expected devices have answered.
+     * @param pending Returns true while further replies are expected regardless of the settle time.
+     */
+    public ScanCollector(final Collection<String> expectedUuids, final long window, final long settleTime,
+            final long expectedSettleTime, final BooleanSupplier pending) {
+        this.expectedUuids = new HashSet<>(expectedUuids);
+        this.startTime = System.currentTimeMillis();
+        this.window = window;
+        this.settleTime = settleTime;
+        this.expectedSettleTime = expectedSettleTime;
+        this.pending = pending;
+    }
+
+    @Override
+    public void deviceDiscovered(final ZMoteDevice device) {
+        synchronized (devices) {
+            if (!devices.containsKey(device.getUuid())) {
+                lastReplyTime = System.currentTimeMillis();
+            }
+            devices.put(device.getUuid(), device);
+        }
+    }
+
+    /**
+     * Completes the scan if one of the completion criteria is met. This has
+     * to be called periodically while the scan is running.
+     *
+     * @return True if the scan is complete, else false.
+     */
+    public boolean checkCompletion() {
+        if (future.isDone()) {
+            return true;
+        }
+
+        final long currentTime = System.currentTimeMillis();
+        final boolean replyPending = pending.getAsBoolean();
+        final Collection<ZMoteDevice> result;
+
+        synchronized (devices) {
+            final long quietTime = currentTime - lastReplyTime;
+            final boolean windowElapsed = (currentTime - startTime) >= window;
+            final boolean settled = !replyPending && !devices.isEmpty() && (quietTime >= settleTime);
+            final boolean allAnswered = !replyPending && !expectedUuids.isEmpty() && devices.keySet().containsAll(expectedUuids)
+                    && (quietTime >= expectedSettleTime);
+
+            if (!windowElapsed && !settled && !allAnswered) {
+                return false;
+            }
+
+            result = new ArrayList<>(devices.values());
+        }
+
+        future.complete(result);
+        return true;
+    }
+
+    /**
+     * @return The future which is completed with the devices found.
+     */
+    public CompletableFuture<Collection<ZMoteDevice>> getFuture() {
+        return future;
+    }
+}
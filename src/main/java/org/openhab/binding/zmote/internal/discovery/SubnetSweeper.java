@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.discovery;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.http.HttpStatus;
+import org.openhab.binding.zmote.internal.exception.ConfigurationException;
+import org.openhab.binding.zmote.internal.model.ZMoteDevice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Probes a range of IPv4 addresses for the ZMote "/uuid" endpoint. Probes are
+ * sent asynchronously with a bounded number of requests in flight and every
+ * device found is passed to the listener as soon as it has answered.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class SubnetSweeper {
+
+    private static final int MIN_PREFIX_LENGTH = 16;
+    private static final int MAX_RESPONSE_SIZE = 256;
+    private static final String UUID_PREFIX = "uuid,";
+
+    private final Logger logger = LoggerFactory.getLogger(SubnetSweeper.class);
+
+    private final HttpClient httpClient;
+    private final int maxConcurrentRequests;
+    private final int port;
+    private final int timeout;
+
+    /**
+     * Creates a new sweeper.
+     *
+     * @param httpClient The started HTTP client used to send the probes.
+     * @param maxConcurrentRequests The maximum number of probes in flight at the same time.
+     * @param timeout The timeout in milliseconds after which a probe is aborted.
+     * @param port The HTTP port to probe.
+     */
+    public SubnetSweeper(final HttpClient httpClient, final int maxConcurrentRequests, final int timeout,
+            final int port) {
+        if ((httpClient == null) || (maxConcurrentRequests < 1) || (timeout < 1) || (port < 1) || (port > 65535)) {
+            throw new IllegalArgumentException("Invalid subnet sweeper configuration!");
+        }
+
+        this.httpClient = httpClient;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.timeout = timeout;
+        this.port = port;
+    }
+
+    /**
+     * Probes all host addresses of the given IPv4 CIDR range, e.g. "192.168.20.0/24".
+     * This method blocks until all probes have completed.
+     *
+     * @param cidr The range to probe. Ranges larger than a /16 are rejected.
+     * @param listener The listener called for each device found.
+     *
+     * @return The number of devices found.
+     *
+     * @throws ConfigurationException if the range is invalid.
+     */
+    public int sweep(final String cidr, final IDiscoveryListener listener) throws InterruptedException {
+        return probe(parseRange(cidr), listener);
+    }
+
+    /**
+     * Probes the given base URLs, e.g. "http://10.10.10.10". This method blocks until
+     * all probes have completed.
+     *
+     * @param urls The base URLs to probe.
+     * @param listener The listener called for each device found.
+     *
+     * @return The number of devices found.
+     */
+    public int probe(final Collection<String> urls, final IDiscoveryListener listener) throws InterruptedException {
+        final Semaphore permits = new Semaphore(maxConcurrentRequests);
+        final CountDownLatch completed = new CountDownLatch(urls.size());
+        final AtomicInteger found = new AtomicInteger();
+
+        for (final String url : urls) {
+            permits.acquire();
+            sendProbe(url, listener, permits, completed, found);
+        }
+
+        // every probe completes on its own timeout, this is just a safety net
+        completed.await(timeout * 2L + 1000L, TimeUnit.MILLISECONDS);
+
+        return found.get();
+    }
+
+    /**
+     * Parses a CIDR range into the base URLs of all host addresses.
+     */
+    List<String> parseRange(final String cidr) {
+        final String[] parts = (cidr != null) ? cidr.trim().split("/") : new String[0];
+
+        try {
+            if (parts.length != 2) {
+                throw new IllegalArgumentException();
+            }
+
+            final InetAddress address = InetAddress.getByName(parts[0].trim());
+            final int prefixLength = Integer.parseInt(parts[1].trim());
+
+            if (!(address instanceof Inet4Address) || (prefixLength < MIN_PREFIX_LENGTH) || (prefixLength > 32)) {
+                throw new IllegalArgumentException();
+            }
+
+            final byte[] bytes = address.getAddress();
+            final long addressBits = ((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16)
+                    | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL);
+            final long size = 1L << (32 - prefixLength);
+            final long network = addressBits & ~(size - 1) & 0xFFFFFFFFL;
+
+            // skip network and broadcast addresses unless the range is too small to have them
+            final long first = (size > 2) ? network + 1 : network;
+            final long last = (size > 2) ? (network + size - 2) : (network + size - 1);
+
+            final List<String> urls = new ArrayList<>((int) (last - first + 1));
+
+            for (long host = first; host <= last; ++host) {
+                urls.add(String.format(Locale.ENGLISH, "http://%d.%d.%d.%d%s", (host >> 24) & 0xFF,
+                        (host >> 16) & 0xFF, (host >> 8) & 0xFF, host & 0xFF, (port != 80) ? (":" + port) : ""));
+            }
+
+            return urls;
+
+        } catch (final IllegalArgumentException | UnknownHostException e) {
+            throw new ConfigurationException(
+                    String.format("Invalid sweep range '%s'! Expected an IPv4 range like 192.168.1.0/24.", cidr));
+        }
+    }
+
+    private void sendProbe(final String url, final IDiscoveryListener listener, final Semaphore permits,
+            final CountDownLatch completed, final AtomicInteger found) {
+
+        try {
+            httpClient.newRequest(url + "/uuid").timeout(timeout, TimeUnit.MILLISECONDS)
+                    .send(new BufferingResponseListener(MAX_RESPONSE_SIZE) {
+                        @Override
+                        public void onComplete(final Result result) {
+                            try {
+                                final String uuid = (result.isSucceeded()
+                                        && (result.getResponse().getStatus() == HttpStatus.OK_200))
+                                                ? parseUuid(getContentAsString()) : null;
+
+                                if (uuid != null) {
+                                    found.incrementAndGet();
+                                    notifyListener(listener, new ZMoteDevice(ZMoteDiscoveryService.ZMOTE_MAKE,
+                                            ZMoteDiscoveryService.ZMOTE_TYPE, null, null, uuid, url));
+                                }
+
+                            } finally {
+                                permits.release();
+                                completed.countDown();
+                            }
+                        }
+                    });
+
+        } catch (final RuntimeException e) {
+            permits.release();
+            completed.countDown();
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to probe {} for a ZMote device.", url, e);
+            }
+        }
+    }
+
+    private void notifyListener(final IDiscoveryListener listener, final ZMoteDevice device) {
+        try {
+            listener.deviceDiscovered(device);
+
+        } catch (final Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Exception while notifying sweep listener.", e);
+            }
+        }
+    }
+
+    private static String parseUuid(final String content) {
+        if ((content == null) || !content.toLowerCase(Locale.ENGLISH).startsWith(UUID_PREFIX)) {
+            return null; // not a ZMote
+        }
+
+        final String uuid = content.substring(UUID_PREFIX.length()).trim().split("[,\\s]", 2)[0];
+        return uuid.isEmpty() ? null : uuid;
+    }
+}
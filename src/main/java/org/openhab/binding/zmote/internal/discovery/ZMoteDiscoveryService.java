@@ -8,23 +8,51 @@
  */
 package org.openhab.binding.zmote.internal.discovery;
 
-import java.net.DatagramPacket;
+import java.io.File;
+import java.io.IOException;
 import java.net.InetAddress;
-import java.net.MulticastSocket;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.openhab.binding.zmote.ZMoteBindingConstants;
+import org.openhab.binding.zmote.internal.config.BindingConfiguration;
 import org.openhab.binding.zmote.internal.model.ZMoteDevice;
+import org.openhab.binding.zmote.internal.service.IZMoteService;
+import org.openhab.binding.zmote.internal.util.LruMap;
+import org.openhab.binding.zmote.internal.util.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +63,9 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
 
     private static final int RESTART_INTERVAL = 60000;
     private static final int LAST_SEEN_THRESHOLD = 60000;
+    private static final int DISPATCH_QUEUE_CAPACITY = 64;
+    private static final int INTERFACE_CHECK_INTERVAL = 60000;
+    private static final int DATAGRAM_BUFFER_SIZE = 512;
 
     private static final int DISCOVERY_SOCKET_PORT = 9131;
     private static final String MCAST_GROUP = "::ffff:239.255.250.250";
@@ -49,18 +80,59 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
     private static final Pattern PATTERN_URL = Pattern.compile("<-Config-URL=(http[^>]+)>", Pattern.CASE_INSENSITIVE);
     private static final Pattern PATTERN_UUID = Pattern.compile("<-UUID=([^>]+)>", Pattern.CASE_INSENSITIVE);
 
-    private static final String ZMOTE_TYPE = "ZMT2";
-    private static final String ZMOTE_MAKE = "zmote.io";
+    private static final int SWEEP_PORT = 80;
+
+    private static final String CACHE_FILE = "zmote" + File.separator + "discovery.json";
+    private static final int CACHE_PROBE_TIMEOUT = 1000;
+    private static final int CACHE_SAVE_DELAY = 5000;
+
+    private static final int MAX_TRACKED_DEVICES = 256;
+    private static final int MAX_TRACKED_SOURCES = 256;
+    private static final double PACKET_RATE_LIMIT = 2.0;
+    private static final int PACKET_BURST_LIMIT = 10;
+    private static final int RATE_LIMIT_LOG_INTERVAL = 1000;
+
+    private static final int SCAN_CHECK_INTERVAL = 100;
+    private static final int SCAN_SETTLE_TIME = 2000;
+    private static final int SCAN_SETTLE_TIME_KNOWN = 300;
+
+    static final String ZMOTE_TYPE = "ZMT2";
+    static final String ZMOTE_MAKE = "zmote.io";
 
     private final Logger logger = LoggerFactory.getLogger(ZMoteDiscoveryService.class);
 
-    private final Map<String, ZMoteDiscoveryResult> discoveryResults = new ConcurrentHashMap<>();
+    private final LruMap<String, ZMoteDiscoveryResult> trackedDevices = new LruMap<>(MAX_TRACKED_DEVICES);
+    private final Map<String, ZMoteDiscoveryResult> discoveryResults = Collections.synchronizedMap(trackedDevices);
     private final List<IDiscoveryListener> discoveryListeners = new CopyOnWriteArrayList<>();
 
     private final ScheduledExecutorService scheduler = ThreadPoolManager
             .getScheduledPool(ZMoteDiscoveryService.class.getName());
-    private ScheduledFuture<?> discoveryFuture = null;
-    private MulticastSocket discoverySocket = null;
+    private final DiscoveryDispatcher dispatcher = new DiscoveryDispatcher(discoveryListeners, scheduler,
+            DISPATCH_QUEUE_CAPACITY);
+    private final AtomicBoolean scanRequested = new AtomicBoolean(false);
+    private final AtomicBoolean interfaceCheckRequested = new AtomicBoolean(false);
+    private final AtomicBoolean sweepRunning = new AtomicBoolean(false);
+    private final AtomicBoolean sweepRequested = new AtomicBoolean(false);
+    private final Map<String, String> sweptDevices = new ConcurrentHashMap<>();
+    private final Map<String, ZMoteDevice> knownDevices = Collections
+            .synchronizedMap(new LruMap<String, ZMoteDevice>(MAX_TRACKED_DEVICES));
+    private final PacketRateLimiter rateLimiter = new PacketRateLimiter(PACKET_RATE_LIMIT, PACKET_BURST_LIMIT,
+            MAX_TRACKED_SOURCES);
+    private final AtomicLong rateLimitedPackets = new AtomicLong();
+    private final AtomicLong invalidPackets = new AtomicLong();
+    private final AtomicBoolean cacheSavePending = new AtomicBoolean(false);
+
+    private Future<?> discoveryFuture = null;
+    private ScheduledFuture<?> sweepFuture = null;
+    private ScheduledFuture<?> statisticsFuture = null;
+    private long loggedStatisticsTotal = 0;
+    private volatile long nextFullSweep = 0;
+    private volatile BindingConfiguration bindingConfig = new BindingConfiguration(null);
+    private volatile IZMoteService zmoteService = null;
+    private volatile DiscoveryCache discoveryCache = null;
+    private volatile Selector discoverySelector = null;
+    private volatile NetworkInterfaceFilter interfaceFilter = new NetworkInterfaceFilter(
+            Collections.<String> emptyList(), Collections.<String> emptyList());
 
     @Override
     public void addListener(final IDiscoveryListener listener) {
@@ -84,13 +156,50 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
         final long discoveryTime = zmoteDiscoveryResult.getLastSeen().getTime();
 
         if ((currentTime - discoveryTime) > LAST_SEEN_THRESHOLD) {
-            discoveryResults.remove(uuid);
+            discoveryResults.remove(uuid, zmoteDiscoveryResult);
             return null; // too old
         }
 
         return zmoteDiscoveryResult.getDevice();
     }
 
+    /**
+     * @return The number of devices which were evicted as too many devices have been seen.
+     */
+    public long getEvictedDeviceCount() {
+        synchronized (discoveryResults) {
+            return trackedDevices.getEvictionCount();
+        }
+    }
+
+    /**
+     * @return The number of received packets which were rejected as they were invalid or not sent by a ZMote.
+     */
+    public long getInvalidPacketCount() {
+        return invalidPackets.get();
+    }
+
+    /**
+     * @return The number of received packets which were rejected as their source sent too many packets.
+     */
+    public long getRateLimitedPacketCount() {
+        return rateLimitedPackets.get();
+    }
+
+    /**
+     * @return The number of discovery notifications which were merged into a newer one for the same device.
+     */
+    public long getCoalescedNotificationCount() {
+        return dispatcher.getCoalescedCount();
+    }
+
+    /**
+     * @return The number of discovery notifications which were dropped as the listeners could not keep up.
+     */
+    public long getDroppedNotificationCount() {
+        return dispatcher.getDroppedCount();
+    }
+
     @Override
     public boolean isOnline(final String uuid) {
         return (getDevice(uuid) != null);
@@ -101,17 +210,59 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
         discoveryListeners.remove(listener);
     }
 
+    @Override
+    public CompletableFuture<Collection<ZMoteDevice>> scan(final Duration window) {
+        final List<String> knownUuids;
+
+        synchronized (knownDevices) {
+            knownUuids = new ArrayList<>(knownDevices.keySet());
+        }
+
+        // a sweep started by this scan keeps it open, as probing a large range takes a while
+        final ScanCollector collector = new ScanCollector(knownUuids, window.toMillis(), SCAN_SETTLE_TIME,
+                SCAN_SETTLE_TIME_KNOWN, () -> sweepRequested.get() || sweepRunning.get());
+        final CompletableFuture<Collection<ZMoteDevice>> future = collector.getFuture();
+
+        addListener(collector);
+
+        final ScheduledFuture<?> completionCheck = scheduler.scheduleWithFixedDelay(collector::checkCompletion,
+                SCAN_CHECK_INTERVAL, SCAN_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+
+        // also cleans up if the caller cancels the scan
+        future.whenComplete((devices, e) -> {
+            completionCheck.cancel(false);
+            removeListener(collector);
+        });
+
+        startScan();
+        startSweep();
+
+        return future;
+    }
+
     @Override
     public synchronized void startScan() {
-        MulticastSocket scanSocket = null;
+        final Selector selector = discoverySelector;
+
+        if ((selector != null) && selector.isOpen()) {
+            // let the discovery worker send the requests on all of its interfaces
+            scanRequested.set(true);
+            selector.wakeup();
+            return;
+        }
+
+        final List<DatagramChannel> scanChannels = new ArrayList<>();
 
         try {
-            final InetAddress inetAddress = InetAddress.getByName(MCAST_GROUP);
-            scanSocket = new MulticastSocket(0);
-            scanSocket.setReuseAddress(true);
-            scanSocket.joinGroup(inetAddress);
-            scanSocket.send(new DatagramPacket(MCAST_REQ_PREFIX.getBytes(), MCAST_REQ_PREFIX.length(), inetAddress,
-                    MCAST_REQ_PORT));
+            for (final NetworkInterface networkInterface : interfaceFilter.getEligibleInterfaces()) {
+                final DatagramChannel scanChannel = openScanChannel(networkInterface);
+
+                if (scanChannel != null) {
+                    scanChannels.add(scanChannel);
+                }
+            }
+
+            sendScanRequests(scanChannels);
 
         } catch (final Exception e) {
             if (logger.isWarnEnabled()) {
@@ -119,18 +270,43 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
             }
 
         } finally {
-            safeClose(scanSocket);
+            for (final DatagramChannel scanChannel : scanChannels) {
+                safeClose(scanChannel);
+            }
+        }
+    }
+
+    @Override
+    public void startSweep() {
+        if (bindingConfig.getString(ZMoteBindingConstants.BINDING_CONFIG_SWEEP_RANGE, null) == null) {
+            return; // sweep mode disabled
         }
+
+        nextFullSweep = 0;
+        sweepRequested.set(true);
+
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                executeSweep();
+            }
+        });
     }
 
-    protected void activate() {
+    protected void activate(final Map<String, Object> properties) {
         try {
             if (scheduler != null) {
                 deactivate();
             }
 
-            startDiscoveryFuture();
-            startScan();
+            updateConfiguration(properties);
+            startDiscoveryFuture(); // the discovery worker will start a scan as soon as it is running
+            startSweepFuture();
+            restoreDiscoveryCache();
+
+            statisticsFuture = scheduler.scheduleWithFixedDelay(this::logStatistics,
+                    ZMoteBindingConstants.STATISTICS_INTERVAL, ZMoteBindingConstants.STATISTICS_INTERVAL,
+                    TimeUnit.SECONDS);
 
             if (logger.isDebugEnabled()) {
                 logger.debug("Activated ZMote discovery service.");
@@ -145,10 +321,34 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
         }
     }
 
+    protected void modified(final Map<String, Object> properties) {
+        updateConfiguration(properties);
+        startSweepFuture();
+
+        final Selector selector = discoverySelector;
+
+        if ((selector != null) && selector.isOpen()) {
+            interfaceCheckRequested.set(true);
+            selector.wakeup();
+        }
+    }
+
     protected void deactivate() {
         try {
+            saveDiscoveryCache();
+            discoveryCache = null;
+            knownDevices.clear();
+
+            stopSweepFuture();
             stopDiscoveryFuture();
 
+            if (statisticsFuture != null) {
+                statisticsFuture.cancel(false);
+                statisticsFuture = null;
+            }
+
+            logStatistics();
+
             if (logger.isDebugEnabled()) {
                 logger.debug("Deactivated ZMote discovery service.");
             }
@@ -161,63 +361,390 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
         }
     }
 
-    private void executeDiscovery() {
-        try {
-            final InetAddress inetAddress = InetAddress.getByName(MCAST_GROUP);
-            final byte[] datagramBuffer = new byte[512];
+    /**
+     * Logs a summary of the discovery counters, so an overloaded listener or a
+     * flood of packets shows up without debug logging. Nothing is logged as long
+     * as nothing changes.
+     */
+    private synchronized void logStatistics() {
+        final long coalesced = dispatcher.getCoalescedCount();
+        final long dropped = dispatcher.getDroppedCount();
+        final long invalid = getInvalidPacketCount();
+        final long rateLimited = getRateLimitedPacketCount();
+        final long evicted = getEvictedDeviceCount();
+        final long total = coalesced + dropped + invalid + rateLimited + evicted; // the counters only grow
 
-            discoverySocket = new MulticastSocket(DISCOVERY_SOCKET_PORT);
-            discoverySocket.setSoTimeout(0);
-            discoverySocket.setReuseAddress(true);
-            discoverySocket.joinGroup(inetAddress);
-
-            while (!Thread.currentThread().isInterrupted()) {
-                final DatagramPacket recv = new DatagramPacket(datagramBuffer, datagramBuffer.length);
+        if (total == loggedStatisticsTotal) {
+            return;
+        }
 
-                discoverySocket.receive(recv);
+        loggedStatisticsTotal = total;
 
-                final String responseMessage = new String(recv.getData(), recv.getOffset(), recv.getLength());
-                final ZMoteDevice zmoteDevice = parseDiscoveryResponse(responseMessage);
+        if (logger.isInfoEnabled()) {
+            logger.info("ZMote discovery statistics: notifications coalesced={}, dropped={}; "
+                    + "packets invalid={}, rate-limited={}; devices evicted={}", coalesced, dropped, invalid,
+                    rateLimited, evicted);
+        }
+    }
 
-                if (zmoteDevice != null) {
-                    discoveryResults.put(zmoteDevice.getUuid(), new ZMoteDiscoveryResult(zmoteDevice));
-                    notifyDiscovery(zmoteDevice);
+    private void executeDiscovery() {
+        try {
+            final InetAddress groupAddress = InetAddress.getByName(MCAST_GROUP);
 
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Discovered ZMote device: {}", zmoteDevice.toString());
-                    }
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!executeDiscovery(groupAddress, interfaceFilter.getEligibleInterfaces())) {
+                    break;
+                }
 
-                } else if (logger.isDebugEnabled()) {
-                    logger.debug("Discovered unsupported device: {}", responseMessage);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Network interfaces changed, restarting ZMote discovery.");
                 }
             }
+
         } catch (final Exception e) {
-            if ((e instanceof SocketException) && Thread.currentThread().isInterrupted()) {
+            if (isTermination(e)) {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Discovery service worker has been terminated.");
                 }
             } else if (logger.isWarnEnabled()) {
                 logger.warn("ZMote device discovery failed!", e);
             }
+        }
+    }
+
+    /**
+     * Listens on all given interfaces until the worker is terminated or the set
+     * of eligible interfaces changes.
+     *
+     * @return True if the interfaces changed and discovery should be restarted, else false.
+     */
+    private boolean executeDiscovery(final InetAddress groupAddress, final List<NetworkInterface> interfaces)
+            throws IOException {
+
+        if (interfaces.isEmpty()) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("No network interface available for ZMote discovery!");
+            }
+            return false;
+        }
+
+        final List<DatagramChannel> scanChannels = new ArrayList<>();
+        DatagramChannel listenChannel = null;
+        Selector selector = null;
+
+        try {
+            selector = Selector.open();
+
+            listenChannel = openListenChannel(groupAddress, interfaces);
+            listenChannel.register(selector, SelectionKey.OP_READ);
+
+            for (final NetworkInterface networkInterface : interfaces) {
+                final DatagramChannel scanChannel = openScanChannel(networkInterface);
+
+                if (scanChannel != null) {
+                    // replies to scan requests can be attributed to the interface directly
+                    scanChannel.register(selector, SelectionKey.OP_READ, networkInterface);
+                    scanChannels.add(scanChannel);
+                }
+            }
+
+            discoverySelector = selector;
+            scanRequested.set(true);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Listening for ZMote devices on interfaces {}.", getInterfaceNames(interfaces));
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocate(DATAGRAM_BUFFER_SIZE);
+            long nextInterfaceCheck = System.currentTimeMillis() + INTERFACE_CHECK_INTERVAL;
+
+            while (!Thread.currentThread().isInterrupted()) {
+                if (scanRequested.getAndSet(false)) {
+                    sendScanRequests(scanChannels);
+                }
+
+                selector.select(INTERFACE_CHECK_INTERVAL);
+
+                final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+
+                while (selectedKeys.hasNext()) {
+                    final SelectionKey selectionKey = selectedKeys.next();
+                    selectedKeys.remove();
+
+                    if (selectionKey.isValid() && selectionKey.isReadable()) {
+                        receiveDatagrams(selectionKey, buffer, interfaces);
+                    }
+                }
+
+                if (interfaceCheckRequested.getAndSet(false)
+                        || (System.currentTimeMillis() >= nextInterfaceCheck)) {
+                    nextInterfaceCheck = System.currentTimeMillis() + INTERFACE_CHECK_INTERVAL;
+
+                    final List<String> currentNames = getInterfaceNames(interfaceFilter.getEligibleInterfaces());
+
+                    if (!currentNames.equals(getInterfaceNames(interfaces))) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+
         } finally {
-            safeCloseDiscoverySocket();
+            discoverySelector = null;
+
+            for (final DatagramChannel scanChannel : scanChannels) {
+                safeClose(scanChannel);
+            }
+
+            safeClose(listenChannel);
+            safeClose(selector);
         }
     }
 
-    private void notifyDiscovery(final ZMoteDevice device) {
-        for (final IDiscoveryListener listener : discoveryListeners) {
+    /**
+     * Probes the configured address range if a full sweep is due, else only
+     * the devices which were found by previous sweeps to keep them online.
+     * Sweeps requested while a sweep is running are executed right afterwards.
+     */
+    private void executeSweep() {
+        final String sweepRange = bindingConfig.getString(ZMoteBindingConstants.BINDING_CONFIG_SWEEP_RANGE, null);
+        final IZMoteService service = zmoteService;
+
+        if ((sweepRange == null) || (service == null)) {
+            sweepRequested.set(false);
+            return; // disabled or not ready
+        }
+
+        do {
+            if (!sweepRunning.compareAndSet(false, true)) {
+                return; // the running sweep takes care of the request
+            }
+
             try {
-                listener.deviceDiscovered(device);
+                do {
+                    sweepRequested.set(false);
+                    executeSweep(sweepRange, service);
+                } while (sweepRequested.get() && !Thread.currentThread().isInterrupted());
 
-            } catch (final Exception e) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Exception while notifying discovery listener.", e);
+            } finally {
+                sweepRunning.set(false);
+            }
+
+        } while (sweepRequested.get() && !Thread.currentThread().isInterrupted());
+    }
+
+    private void executeSweep(final String sweepRange, final IZMoteService service) {
+        try {
+            final SubnetSweeper sweeper = new SubnetSweeper(service.getHttpClient(),
+                    bindingConfig.getInt(ZMoteBindingConstants.BINDING_CONFIG_SWEEP_CONCURRENCY,
+                            ZMoteBindingConstants.DEFAULT_SWEEP_CONCURRENCY),
+                    bindingConfig.getInt(ZMoteBindingConstants.BINDING_CONFIG_SWEEP_TIMEOUT,
+                            ZMoteBindingConstants.DEFAULT_SWEEP_TIMEOUT),
+                    SWEEP_PORT);
+
+            final IDiscoveryListener sweepListener = new IDiscoveryListener() {
+                @Override
+                public void deviceDiscovered(final ZMoteDevice device) {
+                    final ZMoteDevice knownDevice = knownDevices.get(device.getUuid());
+
+                    sweptDevices.put(device.getUuid(), device.getUrl());
+
+                    // keep the details from the device broadcast which the probe does not return
+                    handleDiscoveredDevice(((knownDevice != null) && device.getUrl().equals(knownDevice.getUrl()))
+                            ? knownDevice : device);
                 }
+            };
+
+            final long startTime = System.currentTimeMillis();
+            final boolean fullSweep = (startTime >= nextFullSweep);
+            final int found;
+
+            if (fullSweep) {
+                nextFullSweep = startTime + TimeUnit.MINUTES.toMillis(bindingConfig
+                        .getInt(ZMoteBindingConstants.BINDING_CONFIG_SWEEP_INTERVAL,
+                                ZMoteBindingConstants.DEFAULT_SWEEP_INTERVAL));
+                sweptDevices.clear();
+                found = sweeper.sweep(sweepRange, sweepListener);
+
+            } else {
+                found = sweeper.probe(new ArrayList<>(sweptDevices.values()), sweepListener);
             }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} of {} found {} ZMote devices in {} ms.", fullSweep ? "Sweep" : "Refresh",
+                        sweepRange, found, System.currentTimeMillis() - startTime);
+            }
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } catch (final Exception e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to sweep {} for ZMote devices!", sweepRange, e);
+            }
+        }
+    }
+
+    /**
+     * Restores the devices known before the last shutdown as provisionally online
+     * and confirms each of them with a single probe.
+     */
+    private void restoreDiscoveryCache() {
+        final DiscoveryCache cache = new DiscoveryCache(new File(ConfigConstants.getUserDataFolder(), CACHE_FILE));
+        final List<ZMoteDevice> cachedDevices = cache.load();
+
+        discoveryCache = cache;
+
+        for (final ZMoteDevice device : cachedDevices) {
+            knownDevices.put(device.getUuid(), device);
+            discoveryResults.put(device.getUuid(), new ZMoteDiscoveryResult(device, true));
+        }
+
+        if (cachedDevices.isEmpty()) {
+            return;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Restored {} ZMote devices from discovery cache.", cachedDevices.size());
         }
+
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                confirmCachedDevices(cachedDevices);
+            }
+        });
     }
 
-    private ZMoteDevice parseDiscoveryResponse(final String msg) {
+    private void confirmCachedDevices(final List<ZMoteDevice> cachedDevices) {
+        final IZMoteService service = zmoteService;
+        final Set<String> confirmed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final Map<String, ZMoteDevice> devicesByUuid = new ConcurrentHashMap<>();
+        final List<String> urls = new ArrayList<>(cachedDevices.size());
+
+        if (service == null) {
+            return; // provisional devices will expire if they are not seen again
+        }
+
+        for (final ZMoteDevice device : cachedDevices) {
+            devicesByUuid.put(device.getUuid(), device);
+            urls.add(device.getUrl());
+        }
+
+        try {
+            final SubnetSweeper sweeper = new SubnetSweeper(service.getHttpClient(), urls.size(),
+                    CACHE_PROBE_TIMEOUT, SWEEP_PORT);
+
+            sweeper.probe(urls, new IDiscoveryListener() {
+                @Override
+                public void deviceDiscovered(final ZMoteDevice device) {
+                    final ZMoteDevice cachedDevice = devicesByUuid.get(device.getUuid());
+
+                    if (cachedDevice != null) {
+                        confirmed.add(device.getUuid());
+                    }
+
+                    // keep the details from the device broadcast which the probe does not return
+                    handleDiscoveredDevice((cachedDevice != null) ? cachedDevice : device);
+                }
+            });
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } catch (final Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to confirm cached ZMote devices.", e);
+            }
+        }
+
+        for (final ZMoteDevice device : cachedDevices) {
+            if (confirmed.contains(device.getUuid())) {
+                continue;
+            }
+
+            final ZMoteDiscoveryResult result = discoveryResults.get(device.getUuid());
+
+            if ((result != null) && result.isProvisional()) {
+                discoveryResults.remove(device.getUuid(), result);
+            }
+
+            if (knownDevices.remove(device.getUuid(), device)) {
+                scheduleCacheSave();
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Cached ZMote device {} is not reachable anymore.", device.getUuid());
+            }
+        }
+    }
+
+    private void scheduleCacheSave() {
+        if ((discoveryCache == null) || !cacheSavePending.compareAndSet(false, true)) {
+            return; // disabled or already scheduled
+        }
+
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                cacheSavePending.set(false);
+                saveDiscoveryCache();
+            }
+        }, CACHE_SAVE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    private void saveDiscoveryCache() {
+        final DiscoveryCache cache = discoveryCache;
+
+        if (cache != null) {
+            final List<ZMoteDevice> devices;
+
+            synchronized (knownDevices) {
+                devices = new ArrayList<>(knownDevices.values());
+            }
+
+            cache.save(devices);
+        }
+    }
+
+    private void handleDiscoveredDevice(final ZMoteDevice zmoteDevice) {
+        discoveryResults.put(zmoteDevice.getUuid(), new ZMoteDiscoveryResult(zmoteDevice, false));
+        notifyDiscovery(zmoteDevice);
+
+        if (!zmoteDevice.equals(knownDevices.put(zmoteDevice.getUuid(), zmoteDevice))) {
+            scheduleCacheSave(); // new device or its details changed
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Discovered ZMote device: {}", zmoteDevice.toString());
+        }
+    }
+
+    private void handleDiscoveryResponse(final String responseMessage, final NetworkInterface networkInterface) {
+        final String interfaceName = (networkInterface != null) ? networkInterface.getName() : null;
+        final ZMoteDevice zmoteDevice = parseDiscoveryResponse(responseMessage, interfaceName);
+
+        if (zmoteDevice != null) {
+            handleDiscoveredDevice(zmoteDevice);
+
+        } else {
+            invalidPackets.incrementAndGet();
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Discovered unsupported device: {}", responseMessage);
+            }
+        }
+    }
+
+    private void notifyDiscovery(final ZMoteDevice device) {
+        if (!dispatcher.dispatch(device) && logger.isDebugEnabled()) {
+            logger.debug("Dropped discovery notification for device {} ({} dropped, {} coalesced so far).",
+                    device.getUuid(), dispatcher.getDroppedCount(), dispatcher.getCoalescedCount());
+        }
+    }
+
+    private ZMoteDevice parseDiscoveryResponse(final String msg, final String interfaceName) {
         if (!msg.startsWith(MCAST_RES_PREFIX)) {
             return null; // invalid response
         }
@@ -242,26 +769,182 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
             return null; // unsupported device
         }
 
-        return new ZMoteDevice(make, type, model, revision, uuid, url);
+        return new ZMoteDevice(make, type, model, revision, uuid, url, interfaceName);
     }
 
-    private void safeClose(final MulticastSocket multicastSocket) {
+    private DatagramChannel openListenChannel(final InetAddress groupAddress,
+            final List<NetworkInterface> interfaces) throws IOException {
+
+        final DatagramChannel channel = DatagramChannel.open(StandardProtocolFamily.INET);
+
         try {
-            if (multicastSocket != null) {
-                multicastSocket.close();
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(DISCOVERY_SOCKET_PORT));
+            channel.configureBlocking(false);
+
+            for (final NetworkInterface networkInterface : interfaces) {
+                try {
+                    channel.join(groupAddress, networkInterface);
+
+                } catch (final IOException e) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("Failed to join ZMote multicast group on interface {}!",
+                                networkInterface.getName(), e);
+                    }
+                }
             }
-        } catch (final RuntimeException e) {
+
+            return channel;
+
+        } catch (final IOException | RuntimeException e) {
+            safeClose(channel);
+            throw e;
+        }
+    }
+
+    private DatagramChannel openScanChannel(final NetworkInterface networkInterface) {
+        final InetAddress localAddress = NetworkInterfaceFilter.getIPv4Address(networkInterface);
+        DatagramChannel channel = null;
+
+        if (localAddress == null) {
+            return null;
+        }
+
+        try {
+            channel = DatagramChannel.open(StandardProtocolFamily.INET);
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+            channel.bind(new InetSocketAddress(localAddress, 0));
+            channel.configureBlocking(false);
+            return channel;
+
+        } catch (final IOException | RuntimeException e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to open ZMote scan socket on interface {}!", networkInterface.getName(), e);
+            }
+            safeClose(channel);
+            return null;
+        }
+    }
+
+    private void receiveDatagrams(final SelectionKey selectionKey, final ByteBuffer buffer,
+            final List<NetworkInterface> interfaces) throws IOException {
+
+        final DatagramChannel channel = (DatagramChannel) selectionKey.channel();
+        final NetworkInterface channelInterface = (NetworkInterface) selectionKey.attachment();
+
+        while (true) {
+            buffer.clear();
+            final SocketAddress sourceAddress = channel.receive(buffer);
+
+            if (sourceAddress == null) {
+                return; // no more datagrams pending
+            }
+
+            final InetAddress sourceInetAddress = ((InetSocketAddress) sourceAddress).getAddress();
+
+            // checked before parsing, so a flooding host cannot burn CPU time
+            if (!rateLimiter.tryAcquire(sourceInetAddress)) {
+                final long rejected = rateLimitedPackets.incrementAndGet();
+
+                if (((rejected % RATE_LIMIT_LOG_INTERVAL) == 1) && logger.isDebugEnabled()) {
+                    logger.debug("Rejecting discovery packets from {} which exceeds the rate limit ({} so far).",
+                            sourceInetAddress, rejected);
+                }
+                continue;
+            }
+
+            buffer.flip();
+
+            final String responseMessage = new String(buffer.array(), 0, buffer.limit());
+            final NetworkInterface networkInterface = (channelInterface != null) ? channelInterface
+                    : NetworkInterfaceFilter.findInterface(interfaces, sourceInetAddress);
+
+            handleDiscoveryResponse(responseMessage, networkInterface);
+        }
+    }
+
+    private void sendScanRequests(final List<DatagramChannel> scanChannels) throws IOException {
+        final InetSocketAddress targetAddress = new InetSocketAddress(InetAddress.getByName(MCAST_GROUP),
+                MCAST_REQ_PORT);
+
+        for (final DatagramChannel scanChannel : scanChannels) {
+            try {
+                scanChannel.send(ByteBuffer.wrap(MCAST_REQ_PREFIX.getBytes()), targetAddress);
+
+            } catch (final IOException e) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Failed to send ZMote scan request from {}!", scanChannel.getLocalAddress(), e);
+                }
+            }
+        }
+    }
+
+    // used by OSGI to set the service
+    protected void setZMoteService(final IZMoteService service) {
+        zmoteService = service;
+        addListener(service);
+    }
+
+    // used by OSGI to unset the service
+    protected void unsetZMoteService(final IZMoteService service) {
+        removeListener(service);
+        zmoteService = null;
+    }
+
+    private void updateConfiguration(final Map<String, Object> properties) {
+        final BindingConfiguration config = new BindingConfiguration(properties);
+
+        bindingConfig = config;
+        interfaceFilter = new NetworkInterfaceFilter(
+                config.getStringList(ZMoteBindingConstants.BINDING_CONFIG_INCLUDE_INTERFACES),
+                config.getStringList(ZMoteBindingConstants.BINDING_CONFIG_EXCLUDE_INTERFACES));
+    }
+
+    private boolean isTermination(final Exception e) {
+        return Thread.currentThread().isInterrupted()
+                && ((e instanceof ClosedChannelException) || (e instanceof ClosedSelectorException));
+    }
+
+    private static List<String> getInterfaceNames(final List<NetworkInterface> interfaces) {
+        final List<String> names = new ArrayList<>(interfaces.size());
+
+        for (final NetworkInterface networkInterface : interfaces) {
+            names.add(networkInterface.getName());
+        }
+
+        Collections.sort(names);
+        return names;
+    }
+
+    private void safeClose(final Channel channel) {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (final IOException | RuntimeException e) {
             if (logger.isDebugEnabled()) {
-                logger.debug("Ignored exception while safe-closing multicast socket.", e);
+                logger.debug("Ignored exception while safe-closing discovery channel.", e);
             }
         }
     }
 
-    private void safeCloseDiscoverySocket() {
+    private void safeClose(final Selector selector) {
         try {
-            safeClose(discoverySocket);
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (final IOException | RuntimeException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Ignored exception while safe-closing discovery selector.", e);
+            }
+        }
+    }
+
+    private void safeCloseDiscoverySelector() {
+        try {
+            safeClose(discoverySelector);
         } finally {
-            discoverySocket = null;
+            discoverySelector = null;
         }
     }
 
@@ -273,12 +956,24 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
 
             stopDiscoveryFuture(); // cleanup
 
-            discoveryFuture = scheduler.scheduleWithFixedDelay(new Runnable() {
+            final Runnable runnable = new Runnable() {
                 @Override
                 public void run() {
                     executeDiscovery();
                 }
-            }, 0, RESTART_INTERVAL, TimeUnit.MILLISECONDS);
+            };
+
+            // the receive loop blocks for its whole lifetime, so keep it off the shared pool if possible
+            final IZMoteService service = zmoteService;
+            final ExecutorService virtualExecutor = (service != null) ? service.getVirtualThreadExecutor() : null;
+
+            if (virtualExecutor != null) {
+                discoveryFuture = VirtualThreads.scheduleWithFixedDelay(virtualExecutor, runnable, 0,
+                        RESTART_INTERVAL, TimeUnit.MILLISECONDS);
+            } else {
+                discoveryFuture = scheduler.scheduleWithFixedDelay(runnable, 0, RESTART_INTERVAL,
+                        TimeUnit.MILLISECONDS);
+            }
 
         } catch (final Exception e) {
             if (logger.isErrorEnabled()) {
@@ -288,6 +983,35 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
         }
     }
 
+    private synchronized void startSweepFuture() {
+        stopSweepFuture();
+
+        if (bindingConfig.getString(ZMoteBindingConstants.BINDING_CONFIG_SWEEP_RANGE, null) == null) {
+            return; // sweep mode disabled
+        }
+
+        nextFullSweep = 0;
+
+        sweepFuture = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                executeSweep();
+            }
+        }, 0, RESTART_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopSweepFuture() {
+        try {
+            if (sweepFuture != null) {
+                sweepFuture.cancel(true);
+            }
+
+        } finally {
+            sweepFuture = null;
+            sweptDevices.clear();
+        }
+    }
+
     private synchronized void stopDiscoveryFuture() {
         try {
             if ((discoveryFuture != null) && !discoveryFuture.isCancelled()) {
@@ -300,9 +1024,11 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
             }
 
         } finally {
-            safeCloseDiscoverySocket(); // terminates receive() call on the socket
+            safeCloseDiscoverySelector(); // terminates select() call of the worker
             discoveryFuture = null;
             discoveryResults.clear();
+            dispatcher.clear();
+            rateLimiter.clear();
         }
     }
 
@@ -310,10 +1036,12 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
 
         private final Date lastSeen;
         private final ZMoteDevice device;
+        private final boolean provisional;
 
-        public ZMoteDiscoveryResult(final ZMoteDevice device) {
+        public ZMoteDiscoveryResult(final ZMoteDevice device, final boolean provisional) {
             this.lastSeen = new Date();
             this.device = device;
+            this.provisional = provisional;
         }
 
         public ZMoteDevice getDevice() {
@@ -323,5 +1051,12 @@ public class ZMoteDiscoveryService implements IZMoteDiscoveryService {
         public Date getLastSeen() {
             return lastSeen;
         }
+
+        /**
+         * @return True if the device was restored from the cache and has not been seen since.
+         */
+        public boolean isProvisional() {
+            return provisional;
+        }
     }
 }
@@ -8,8 +8,11 @@
  */
 package org.openhab.binding.zmote.internal.discovery;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.smarthome.config.discovery.AbstractDiscoveryService;
 import org.eclipse.smarthome.config.discovery.DiscoveryResult;
@@ -29,6 +32,7 @@ public class ZMoteDiscoveryServiceParticipant extends AbstractDiscoveryService i
 
     private final Logger logger = LoggerFactory.getLogger(ZMoteDiscoveryServiceParticipant.class);
     private IZMoteDiscoveryService zmoteDiscovery = null;
+    private CompletableFuture<Collection<ZMoteDevice>> scanFuture = null;
 
     public ZMoteDiscoveryServiceParticipant() {
         super(ZMoteBindingConstants.SUPPORTED_THING_TYPES_UIDS, ZMoteBindingConstants.DISCOVERY_TIMEOUT,
@@ -56,10 +60,16 @@ public class ZMoteDiscoveryServiceParticipant extends AbstractDiscoveryService i
     }
 
     @Override
-    protected void startScan() {
+    protected synchronized void startScan() {
         if (zmoteDiscovery != null) {
             zmoteDiscovery.addListener(this);
-            zmoteDiscovery.startScan();
+
+            final CompletableFuture<Collection<ZMoteDevice>> future = zmoteDiscovery
+                    .scan(Duration.ofSeconds(ZMoteBindingConstants.DISCOVERY_TIMEOUT));
+            scanFuture = future;
+
+            // finish the scan as soon as all devices have answered
+            future.thenAccept(devices -> onScanCompleted(future, devices));
 
         } else {
             if (logger.isWarnEnabled()) {
@@ -76,11 +86,16 @@ public class ZMoteDiscoveryServiceParticipant extends AbstractDiscoveryService i
     }
 
     @Override
-    protected void stopScan() {
+    protected synchronized void stopScan() {
         if ((zmoteDiscovery != null) && !isBackgroundDiscoveryEnabled()) {
             zmoteDiscovery.removeListener(this);
         }
 
+        if (scanFuture != null) {
+            scanFuture.cancel(false);
+            scanFuture = null;
+        }
+
         super.stopScan();
     }
 
@@ -98,11 +113,24 @@ public class ZMoteDiscoveryServiceParticipant extends AbstractDiscoveryService i
         }
     }
 
+    private synchronized void onScanCompleted(final CompletableFuture<Collection<ZMoteDevice>> future,
+            final Collection<ZMoteDevice> devices) {
+        if (future != scanFuture) {
+            return; // a newer scan is running or the scan was stopped already
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("ZMote scan completed, {} devices answered.", devices.size());
+        }
+
+        stopScan();
+    }
+
     private DiscoveryResult createDiscoveryResult(final ZMoteDevice device) {
         final String uuid = device.getUuid();
         final String label = String.format("ZMote IR Home Controller (%s)", uuid);
 
-        final Map<String, Object> properties = new HashMap<>(6);
+        final Map<String, Object> properties = new HashMap<>(7);
         properties.put(ZMoteBindingConstants.PROP_UUID, uuid);
         properties.put(ZMoteBindingConstants.PROP_URL, device.getUrl());
         properties.put(ZMoteBindingConstants.PROP_MAKE, device.getMake());
@@ -110,6 +138,10 @@ public class ZMoteDiscoveryServiceParticipant extends AbstractDiscoveryService i
         properties.put(ZMoteBindingConstants.PROP_REVISION, device.getRevision());
         properties.put(ZMoteBindingConstants.PROP_TYPE, device.getType());
 
+        if (device.getNetworkInterface() != null) {
+            properties.put(ZMoteBindingConstants.PROP_INTERFACE, device.getNetworkInterface());
+        }
+
         final ThingUID thingUID = new ThingUID(ZMoteBindingConstants.THING_TYPE_ZMT2, uuid);
         return DiscoveryResultBuilder.create(thingUID).withProperties(properties).withLabel(label).build();
     }
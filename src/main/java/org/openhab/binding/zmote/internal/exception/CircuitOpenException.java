@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.exception;
+
+/**
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class CircuitOpenException extends CommunicationException {
+
+    private static final long serialVersionUID = -2169340515273786016L;
+
+    public CircuitOpenException() {
+        super();
+    }
+
+    public CircuitOpenException(final String message) {
+        super(message);
+    }
+
+    public CircuitOpenException(final Throwable cause) {
+        super(cause);
+    }
+
+    public CircuitOpenException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
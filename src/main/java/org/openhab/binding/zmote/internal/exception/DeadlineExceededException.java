@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.exception;
+
+/**
+ * Thrown if a command could not be completed before its deadline. This is not a
+ * device error, the command is dropped as it would arrive too late to be useful.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class DeadlineExceededException extends ZMoteBindingException {
+
+    private static final long serialVersionUID = 7013459582317447311L;
+
+    public DeadlineExceededException() {
+        super();
+    }
+
+    public DeadlineExceededException(final String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(final Throwable cause) {
+        super(cause);
+    }
+
+    public DeadlineExceededException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
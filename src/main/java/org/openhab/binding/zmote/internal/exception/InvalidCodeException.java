@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.exception;
+
+/**
+ * Thrown if a raw IR code is malformed. This is not a device error, the code
+ * is rejected before it is sent.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class InvalidCodeException extends ZMoteBindingException {
+
+    private static final long serialVersionUID = -4127730591485602298L;
+
+    public InvalidCodeException() {
+        super();
+    }
+
+    public InvalidCodeException(final String message) {
+        super(message);
+    }
+
+    public InvalidCodeException(final Throwable cause) {
+        super(cause);
+    }
+
+    public InvalidCodeException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
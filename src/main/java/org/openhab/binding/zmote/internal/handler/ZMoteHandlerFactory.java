@@ -8,15 +8,21 @@
  */
 package org.openhab.binding.zmote.internal.handler;
 
+import static org.openhab.binding.zmote.ZMoteBindingConstants.THING_TYPE_GROUP;
 import static org.openhab.binding.zmote.ZMoteBindingConstants.THING_TYPE_ZMT2;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandlerFactory;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
+import org.openhab.binding.zmote.handler.ZMoteGroupHandler;
 import org.openhab.binding.zmote.handler.ZMoteHandler;
 import org.openhab.binding.zmote.internal.discovery.IZMoteDiscoveryService;
 import org.openhab.binding.zmote.internal.service.IZMoteService;
@@ -29,7 +35,11 @@ import org.openhab.binding.zmote.internal.service.IZMoteService;
  */
 public class ZMoteHandlerFactory extends BaseThingHandlerFactory {
 
-    private final static Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Collections.singleton(THING_TYPE_ZMT2);
+    private final static Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList(THING_TYPE_ZMT2, THING_TYPE_GROUP)));
+
+    // groups look up their members here
+    private final Map<String, ZMoteHandler> handlers = new ConcurrentHashMap<>();
 
     private IZMoteService zmoteService = null;
     private IZMoteDiscoveryService zmoteDiscoveryService = null;
@@ -49,12 +59,25 @@ public class ZMoteHandlerFactory extends BaseThingHandlerFactory {
         final ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
         if (thingTypeUID.equals(THING_TYPE_ZMT2)) {
-            return new ZMoteHandler(thing, zmoteService, zmoteDiscoveryService);
+            final ZMoteHandler handler = new ZMoteHandler(thing, zmoteService, zmoteDiscoveryService);
+            handlers.put(thing.getUID().toString(), handler);
+            return handler;
+        }
+
+        if (thingTypeUID.equals(THING_TYPE_GROUP)) {
+            return new ZMoteGroupHandler(thing, zmoteService, handlers::get);
         }
 
         return null;
     }
 
+    @Override
+    protected void removeHandler(final ThingHandler thingHandler) {
+        if (thingHandler instanceof ZMoteHandler) {
+            handlers.values().remove(thingHandler);
+        }
+    }
+
     // used by OSGI to set the service
     protected void setZMoteDiscoveryService(final IZMoteDiscoveryService zmoteDiscoveryService) {
         this.zmoteDiscoveryService = zmoteDiscoveryService;
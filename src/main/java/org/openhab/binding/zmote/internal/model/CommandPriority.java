@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.model;
+
+import java.util.Locale;
+
+/**
+ * The priority of a command sent to a device. Commands with a higher priority
+ * are sent first and may interrupt lower priority commands between two codes.
+ * The constants are ordered from highest to lowest priority.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public enum CommandPriority {
+    INTERACTIVE,
+    NORMAL,
+    BULK;
+
+    /**
+     * @return True if this priority is higher than the given one.
+     */
+    public boolean isHigherThan(final CommandPriority other) {
+        return ordinal() < other.ordinal();
+    }
+
+    /**
+     * Parses a priority name, ignoring its case.
+     *
+     * @param value The name of the priority.
+     * @param defaultValue The priority returned if the value is empty or unknown.
+     *
+     * @return The parsed priority.
+     */
+    public static CommandPriority parse(final String value, final CommandPriority defaultValue) {
+        if ((value == null) || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+
+        } catch (final IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+}
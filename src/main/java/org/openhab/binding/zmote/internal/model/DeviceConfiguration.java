@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.model;
+
+import java.math.BigDecimal;
+
+import org.openhab.binding.zmote.ZMoteBindingConstants;
+import org.openhab.binding.zmote.internal.exception.ConfigurationException;
+
+/**
+ * An immutable, resolved copy of a {@link ZMoteConfig}. Defaults are applied
+ * and numbers are converted once, so the configuration can be passed along
+ * with every command without any further parsing.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public final class DeviceConfiguration {
+
+    private final String thingId;
+    private final String uuid;
+    private final String autoUrl;
+    private final String overrideUrl;
+    private final String configFile;
+    private final int retry;
+    private final int timeout;
+    private final int suppressionWindow;
+    private final int offlineBuffer;
+
+    private DeviceConfiguration(final String thingId, final String uuid, final String autoUrl,
+            final String overrideUrl, final String configFile, final int retry, final int timeout,
+            final int suppressionWindow, final int offlineBuffer) {
+        this.thingId = thingId;
+        this.uuid = uuid;
+        this.autoUrl = autoUrl;
+        this.overrideUrl = overrideUrl;
+        this.configFile = configFile;
+        this.retry = retry;
+        this.timeout = timeout;
+        this.suppressionWindow = suppressionWindow;
+        this.offlineBuffer = offlineBuffer;
+    }
+
+    /**
+     * Resolves the given thing configuration.
+     *
+     * @param thingId The UID of the thing the configuration belongs to.
+     * @param config The thing configuration.
+     *
+     * @return The resolved configuration.
+     *
+     * @throws ConfigurationException if a numeric value is invalid.
+     */
+    public static DeviceConfiguration fromConfig(final String thingId, final ZMoteConfig config) {
+        if (config == null) {
+            throw new ConfigurationException("Failed to read thing configuration!");
+        }
+
+        final int retry = toInt(config.getRetry(), ZMoteBindingConstants.DEFAULT_RETRY);
+        final int timeout = toInt(config.getTimeout(), ZMoteBindingConstants.DEFAULT_TIMEOUT);
+        final int suppressionWindow = toInt(config.getSuppressionWindow(),
+                ZMoteBindingConstants.DEFAULT_SUPPRESSION_WINDOW);
+        final int offlineBuffer = toInt(config.getOfflineBuffer(), ZMoteBindingConstants.DEFAULT_OFFLINE_BUFFER);
+
+        if (retry < 0) {
+            throw new ConfigurationException(String.format("Invalid number of retries: %d", retry));
+        }
+
+        if (timeout < 1) {
+            throw new ConfigurationException(String.format("Invalid timeout: %d", timeout));
+        }
+
+        if (suppressionWindow < 0) {
+            throw new ConfigurationException(String.format("Invalid suppression window: %d", suppressionWindow));
+        }
+
+        if (offlineBuffer < 0) {
+            throw new ConfigurationException(String.format("Invalid offline buffer time: %d", offlineBuffer));
+        }
+
+        return new DeviceConfiguration(thingId, emptyToNull(config.getUuid()), emptyToNull(config.getAutoUrl()),
+                emptyToNull(config.getOverrideUrl()), emptyToNull(config.getConfigFile()), retry, timeout,
+                suppressionWindow, offlineBuffer);
+    }
+
+    /**
+     * Returns a copy of this configuration with a new auto-discovery URL.
+     *
+     * @param newAutoUrl The URL which was discovered for the device.
+     *
+     * @return This instance if the URL is unchanged, else a new configuration.
+     */
+    public DeviceConfiguration withAutoUrl(final String newAutoUrl) {
+        final String url = emptyToNull(newAutoUrl);
+
+        if ((url == null) ? (autoUrl == null) : url.equals(autoUrl)) {
+            return this;
+        }
+
+        return new DeviceConfiguration(thingId, uuid, url, overrideUrl, configFile, retry, timeout,
+                suppressionWindow, offlineBuffer);
+    }
+
+    /**
+     * @return The UID of the thing this configuration belongs to.
+     */
+    public String getThingId() {
+        return thingId;
+    }
+
+    /**
+     * @return The UUID of the device or null if it is not set.
+     */
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return The URL which was discovered using auto-discovery or null.
+     */
+    public String getAutoUrl() {
+        return autoUrl;
+    }
+
+    /**
+     * @return The override URL or null if it is not set.
+     */
+    public String getOverrideUrl() {
+        return overrideUrl;
+    }
+
+    /**
+     * @return True if the device is configured with a fixed URL instead of being discovered.
+     */
+    public boolean hasOverrideUrl() {
+        return overrideUrl != null;
+    }
+
+    /**
+     * @return The override URL if it is set, else the auto-discovery URL.
+     */
+    public String getUrl() {
+        return (overrideUrl != null) ? overrideUrl : autoUrl;
+    }
+
+    /**
+     * @return The IR code configuration file or null if it is not set.
+     */
+    public String getConfigFile() {
+        return configFile;
+    }
+
+    /**
+     * @return The number of retries for each code.
+     */
+    public int getRetry() {
+        return retry;
+    }
+
+    /**
+     * @return The connection timeout in seconds.
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return The time in milliseconds in which duplicate commands are dropped, 0 if disabled.
+     */
+    public int getSuppressionWindow() {
+        return suppressionWindow;
+    }
+
+    /**
+     * @return The time in seconds commands are kept while the device is offline, 0 if disabled.
+     */
+    public int getOfflineBuffer() {
+        return offlineBuffer;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("DeviceConfiguration [");
+        stringBuilder.append(" thingId=\"").append(thingId).append("\",");
+        stringBuilder.append(" uuid=\"").append(uuid).append("\",");
+        stringBuilder.append(" autoUrl=\"").append(autoUrl).append("\",");
+        stringBuilder.append(" overrideUrl=\"").append(overrideUrl).append("\",");
+        stringBuilder.append(" configFile=\"").append(configFile).append("\",");
+        stringBuilder.append(" retry=\"").append(retry).append("\"");
+        stringBuilder.append(" timeout=\"").append(timeout).append("\"");
+        stringBuilder.append(" suppressionWindow=\"").append(suppressionWindow).append("\"");
+        stringBuilder.append(" offlineBuffer=\"").append(offlineBuffer).append("\"");
+        stringBuilder.append("]");
+
+        return stringBuilder.toString();
+    }
+
+    private static int toInt(final BigDecimal value, final int defaultValue) {
+        return (value != null) ? value.intValue() : defaultValue;
+    }
+
+    private static String emptyToNull(final String value) {
+        return ((value == null) || value.isEmpty()) ? null : value;
+    }
+}
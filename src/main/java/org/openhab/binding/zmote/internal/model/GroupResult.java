@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The aggregated result of a command which was sent to a group of things.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public final class GroupResult {
+
+    /**
+     * The outcome of the command for a single thing.
+     */
+    public enum Outcome {
+        /** The code was sent. */
+        SENT,
+        /** The code was not sent, e.g. because the button key is unknown. */
+        NOT_SENT,
+        /** The communication with the device failed. */
+        FAILED,
+        /** The deadline expired before the code could be sent. */
+        EXPIRED
+    }
+
+    private final Map<String, Outcome> outcomes;
+    private final Map<String, String> errors;
+    private final long duration;
+
+    /**
+     * Creates a new result.
+     *
+     * @param outcomes The outcome by thing UID.
+     * @param errors The error message by thing UID for things which failed.
+     * @param duration The time it took to complete the command for all things in milliseconds.
+     */
+    public GroupResult(final Map<String, Outcome> outcomes, final Map<String, String> errors, final long duration) {
+        this.outcomes = Collections.unmodifiableMap(new LinkedHashMap<>(outcomes));
+        this.errors = Collections.unmodifiableMap(new LinkedHashMap<>(errors));
+        this.duration = duration;
+    }
+
+    /**
+     * @return True if the code was sent for all things.
+     */
+    public boolean isSuccess() {
+        return getSentCount() == outcomes.size();
+    }
+
+    /**
+     * @return The number of things the code was sent for.
+     */
+    public int getSentCount() {
+        int count = 0;
+
+        for (final Outcome outcome : outcomes.values()) {
+            if (outcome == Outcome.SENT) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return The outcome by thing UID, in the order the things were given.
+     */
+    public Map<String, Outcome> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * @param thingId The UID of the thing.
+     *
+     * @return The outcome for the given thing or null if it was not part of the group.
+     */
+    public Outcome getOutcome(final String thingId) {
+        return outcomes.get(thingId);
+    }
+
+    /**
+     * @param thingId The UID of the thing.
+     *
+     * @return The error message of the given thing or null if there was none.
+     */
+    public String getError(final String thingId) {
+        return errors.get(thingId);
+    }
+
+    /**
+     * @return The time it took to complete the command for all things in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append("GroupResult [");
+        stringBuilder.append(" outcomes=\"").append(outcomes).append("\",");
+        stringBuilder.append(" errors=\"").append(errors).append("\",");
+        stringBuilder.append(" duration=\"").append(duration).append("\"");
+        stringBuilder.append("]");
+
+        return stringBuilder.toString();
+    }
+}
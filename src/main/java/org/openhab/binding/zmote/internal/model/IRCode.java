@@ -8,6 +8,8 @@
  */
 package org.openhab.binding.zmote.internal.model;
 
+import org.openhab.binding.zmote.internal.exception.InvalidCodeException;
+
 /**
  * An IR code which can handle toggle codes. Toggle codes send different
  * IR signals for the same button, alternating between both signals.
@@ -18,13 +20,17 @@ public class IRCode {
 
     private final String codeMain;
     private final String codeAlternate;
+    private final long[] timing;
+    private final long duration;
+    private final IRPayload payloadMain;
+    private final IRPayload payloadAlternate;
 
     private IRCodeState nextState = IRCodeState.MAIN;
 
     /**
      * Creates a normal instance which always returns the given IR code.
      *
-     * @param code The code to return when {@link #nextCode()} is called.
+     * @param code The code to return when {@link #nextPayload()} is called.
      */
     public IRCode(final String code) {
         this(code, null);
@@ -43,21 +49,173 @@ public class IRCode {
         if (codeMain == null) {
             throw new IllegalArgumentException("The main IR code cannot be null!");
         }
+
+        this.timing = parseTiming(codeMain);
+        this.duration = calculateDuration((timing != null) ? timing[1] : 1);
+        this.payloadMain = new IRPayload(codeMain, duration);
+        this.payloadAlternate = (codeAlternate != null) ? new IRPayload(codeAlternate, duration) : null;
+    }
+
+    /**
+     * Parses and validates a raw IR code, e.g. as entered by a user. The code must
+     * have the format "frequency,repeat,offset,on,off,..." with an even number of
+     * positive on and off durations. Whitespace is removed.
+     *
+     * @param code The raw IR code.
+     *
+     * @return The parsed code.
+     *
+     * @throws InvalidCodeException if the code is malformed.
+     */
+    public static IRCode parse(final String code) {
+        final String normalized = (code != null) ? code.replaceAll("\\s+", "") : "";
+        final String[] values = normalized.split(",");
+
+        if (values.length < 5) {
+            throw new InvalidCodeException(String.format("The IR code '%s' is too short!", code));
+        }
+
+        try {
+            final double frequency = Double.parseDouble(values[0]);
+            final int repeat = Integer.parseInt(values[1]);
+            final int offset = Integer.parseInt(values[2]);
+            final int pulses = values.length - 3;
+
+            if ((frequency <= 0) || (repeat < 1) || (offset < 1) || (offset > pulses) || ((pulses % 2) != 0)) {
+                throw new InvalidCodeException(String.format("The IR code '%s' has an invalid header!", code));
+            }
+
+            for (int i = 3; i < values.length; ++i) {
+                if (Integer.parseInt(values[i]) <= 0) {
+                    throw new InvalidCodeException(
+                            String.format("The IR code '%s' contains an invalid duration!", code));
+                }
+            }
+
+        } catch (final NumberFormatException e) {
+            throw new InvalidCodeException(String.format("The IR code '%s' is not numeric!", code), e);
+        }
+
+        return new IRCode(normalized);
+    }
+
+    /**
+     * Calculates how long it takes to transmit this code. A code has the format
+     * "frequency,repeat,offset,on,off,...", where the on and off durations are
+     * given in carrier cycles and the pairs starting at offset are repeated.
+     *
+     * @return The transmission time in milliseconds or 0 if the code cannot be parsed.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return The number of times the device sends the code, as given by the code itself.
+     */
+    public int getRepeat() {
+        return (timing != null) ? (int) timing[1] : 1;
+    }
+
+    /**
+     * Calculates how long it takes to transmit one repetition of this code, i.e.
+     * the pairs starting at the offset.
+     *
+     * @return The frame time in milliseconds or 0 if the code cannot be parsed.
+     */
+    public long getFrameDuration() {
+        if (timing == null) {
+            return 0;
+        }
+
+        return Math.round((timing[3] * 1000.0) / timing[0]);
     }
 
     /**
      * @return The next code which should be sent.
      */
-    public String nextCode() {
-        if ((nextState == IRCodeState.ALTERNATE) && (codeAlternate != null)) {
+    public IRPayload nextPayload() {
+        if ((nextState == IRCodeState.ALTERNATE) && (payloadAlternate != null)) {
             nextState = IRCodeState.MAIN;
-            return codeAlternate;
+            return payloadAlternate;
         }
 
-        if (codeAlternate != null) {
+        if (payloadAlternate != null) {
             nextState = IRCodeState.ALTERNATE;
         }
 
-        return codeMain;
+        return payloadMain;
+    }
+
+    /**
+     * Returns the next code which should be sent with its repeat field replaced,
+     * so the device repeats the code by itself.
+     *
+     * @param repeat The number of times the device should send the code.
+     *
+     * @return The next code with the given repeat count.
+     */
+    public IRPayload nextPayload(final int repeat) {
+        final IRPayload payload = nextPayload();
+        final String[] values = payload.getCode().split(",", 3);
+
+        if ((values.length < 3) || (repeat < 1)) {
+            return payload;
+        }
+
+        return new IRPayload(values[0] + "," + repeat + "," + values[2], calculateDuration(repeat));
+    }
+
+    /**
+     * Calculates the transmission time of this code when it is sent the given number of times.
+     */
+    private long calculateDuration(final long repeat) {
+        if (timing == null) {
+            return 0;
+        }
+
+        return Math.round(((timing[2] + ((repeat - 1) * timing[3])) * 1000.0) / timing[0]);
+    }
+
+    /**
+     * Parses the timing of the given code.
+     *
+     * @return The frequency, the repeat count, the cycles of the whole code and the
+     *         cycles of the repeated part or null if the code cannot be parsed.
+     */
+    private static long[] parseTiming(final String code) {
+        try {
+            final String[] values = code.split(",");
+
+            if (values.length < 4) {
+                return null;
+            }
+
+            final long frequency = Math.round(Double.parseDouble(values[0].trim()));
+            final int repeat = Math.max(1, Integer.parseInt(values[1].trim()));
+            final int offset = Math.max(1, Integer.parseInt(values[2].trim()));
+
+            long totalCycles = 0;
+            long repeatCycles = 0;
+
+            for (int i = 3; i < values.length; ++i) {
+                final long cycles = Long.parseLong(values[i].trim());
+
+                totalCycles += cycles;
+
+                if ((i - 3) >= (offset - 1)) {
+                    repeatCycles += cycles;
+                }
+            }
+
+            if (frequency <= 0) {
+                return null;
+            }
+
+            return new long[] { frequency, repeat, totalCycles, repeatCycles };
+
+        } catch (final NumberFormatException e) {
+            return null;
+        }
     }
 }
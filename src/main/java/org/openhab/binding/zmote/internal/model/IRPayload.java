@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.model;
+
+/**
+ * A single IR code encoded as the body of a ZMote "sendir" request, together
+ * with the time it takes the device to transmit it. Instances are created by
+ * {@link IRCode}, so sending a code again neither parses nor encodes it.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class IRPayload {
+
+    private static final String SENDIR_PREFIX = "sendir,1:1,0,";
+
+    private final String code;
+    private final String message;
+    private final long duration;
+
+    IRPayload(final String code, final long duration) {
+        this.code = code;
+        this.message = SENDIR_PREFIX + code;
+        this.duration = duration;
+    }
+
+    /**
+     * @return The IR code without the request prefix.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return The request body which makes the device send the code.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The transmission time in milliseconds or 0 if it is unknown.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
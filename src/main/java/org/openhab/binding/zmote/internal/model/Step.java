@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A single step of a key sequence: either a button key from the configuration
+ * file or a raw IR code, followed by an optional pause.
+ *
+ * The text form of a sequence separates the steps by ';'. Raw codes are prefixed
+ * with "code:" and a pause in milliseconds can be appended using '@', e.g.
+ * "KEY_1@200;KEY_2;KEY_ENTER" or "code:38000,1,1,342,171,21,21@500;KEY_OK".
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public final class Step {
+
+    /**
+     * The delay of steps which use the default pause, i.e. a short gap after the code has been sent.
+     */
+    public static final long DEFAULT_DELAY = -1;
+
+    private static final String STEP_SEPARATOR = ";";
+    private static final String DELAY_SEPARATOR = "@";
+    private static final String CODE_PREFIX = "code:";
+
+    private final String key;
+    private final String code;
+    private final long delay;
+
+    private Step(final String key, final String code, final long delay) {
+        if (delay < DEFAULT_DELAY) {
+            throw new IllegalArgumentException("The delay cannot be negative!");
+        }
+
+        this.key = key;
+        this.code = code;
+        this.delay = delay;
+    }
+
+    /**
+     * Creates a step which sends a button key.
+     *
+     * @param key The button key as used in the configuration file.
+     * @param delay The pause in milliseconds after this step or {@link #DEFAULT_DELAY}.
+     *
+     * @return The new step.
+     */
+    public static Step key(final String key, final long delay) {
+        if ((key == null) || key.trim().isEmpty()) {
+            throw new IllegalArgumentException("The key cannot be empty!");
+        }
+        return new Step(key.trim(), null, delay);
+    }
+
+    /**
+     * Creates a step which sends a raw IR code.
+     *
+     * @param code The IR code.
+     * @param delay The pause in milliseconds after this step or {@link #DEFAULT_DELAY}.
+     *
+     * @return The new step.
+     */
+    public static Step code(final String code, final long delay) {
+        if ((code == null) || code.trim().isEmpty()) {
+            throw new IllegalArgumentException("The code cannot be empty!");
+        }
+        return new Step(null, code.trim(), delay);
+    }
+
+    /**
+     * Parses the text form of a key sequence.
+     *
+     * @param sequence The sequence, e.g. "KEY_1@200;KEY_2;KEY_ENTER".
+     *
+     * @return The steps of the sequence, never empty.
+     *
+     * @throws IllegalArgumentException if the sequence is empty or invalid.
+     */
+    public static List<Step> parse(final String sequence) {
+        final List<Step> steps = new ArrayList<>();
+
+        if (sequence != null) {
+            for (final String part : sequence.split(STEP_SEPARATOR)) {
+                if (!part.trim().isEmpty()) {
+                    steps.add(parseStep(part.trim()));
+                }
+            }
+        }
+
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException(String.format("The key sequence '%s' is empty!", sequence));
+        }
+
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * @return The button key or null if this step sends a raw code.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The raw IR code or null if this step sends a button key.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return The pause in milliseconds after this step or {@link #DEFAULT_DELAY}.
+     */
+    public long getDelay() {
+        return delay;
+    }
+
+    @Override
+    public String toString() {
+        final String value = (key != null) ? key : (CODE_PREFIX + code);
+        return (delay == DEFAULT_DELAY) ? value : (value + DELAY_SEPARATOR + delay);
+    }
+
+    private static Step parseStep(final String text) {
+        final int delayIndex = text.lastIndexOf(DELAY_SEPARATOR);
+        final String value = (delayIndex >= 0) ? text.substring(0, delayIndex).trim() : text;
+        long delay = DEFAULT_DELAY;
+
+        if (delayIndex >= 0) {
+            try {
+                delay = Long.parseLong(text.substring(delayIndex + 1).trim());
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Invalid delay in step '%s'!", text));
+            }
+
+            if (delay < 0) {
+                throw new IllegalArgumentException(String.format("Invalid delay in step '%s'!", text));
+            }
+        }
+
+        if (value.toLowerCase(Locale.ENGLISH).startsWith(CODE_PREFIX)) {
+            return code(value.substring(CODE_PREFIX.length()), delay);
+        }
+
+        return key(value, delay);
+    }
+}
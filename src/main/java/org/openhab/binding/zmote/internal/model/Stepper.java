@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.model;
+
+/**
+ * Tracks the estimated position of a value which can only be changed using up
+ * and down buttons, e.g. the volume of a TV. New targets only replace the
+ * previous one, so targets which arrive while a transmission is running are
+ * merged into a single net change.
+ *
+ * The position is an estimate, as the device cannot be queried. Moving to 0
+ * always sends the whole range, which brings the estimate back in line with
+ * the device.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class Stepper {
+
+    private final int steps;
+
+    private int position = 0;
+    private int target = 0;
+    private boolean resync = false;
+    private boolean busy = false;
+
+    /**
+     * Creates a new stepper at position 0.
+     *
+     * @param steps The number of button presses from 0 to 100 percent.
+     */
+    public Stepper(final int steps) {
+        if (steps < 1) {
+            throw new IllegalArgumentException("The number of steps must be positive!");
+        }
+
+        this.steps = steps;
+    }
+
+    /**
+     * Sets a new target.
+     *
+     * @param percent The target in percent.
+     *
+     * @return True if the caller has to start sending, false if a transmission is
+     *         already running which will pick up the new target.
+     */
+    public synchronized boolean moveTo(final int percent) {
+        target = Math.round((Math.max(0, Math.min(100, percent)) * steps) / 100.0f);
+        resync = (target == 0);
+
+        return start();
+    }
+
+    /**
+     * Moves the target by the given number of button presses.
+     *
+     * @param delta The number of presses, negative values move down.
+     *
+     * @return True if the caller has to start sending, false if a transmission is
+     *         already running which will pick up the new target.
+     */
+    public synchronized boolean moveBy(final int delta) {
+        target = Math.max(0, Math.min(steps, target + delta));
+
+        return start();
+    }
+
+    /**
+     * Returns the number of button presses which are needed to reach the target.
+     * If it is 0, the target has been reached and the next call to
+     * {@link #moveTo(int)} or {@link #moveBy(int)} returns true again.
+     *
+     * @return The number of presses, negative values move down.
+     */
+    public synchronized int nextDelta() {
+        if (resync) {
+            resync = false;
+            position = steps; // the device stops at 0, whatever its real position is
+        }
+
+        final int delta = target - position;
+
+        if (delta == 0) {
+            busy = false;
+        }
+
+        return delta;
+    }
+
+    /**
+     * Records that the given number of button presses has been sent.
+     *
+     * @param delta The number of presses, negative values move down.
+     */
+    public synchronized void applied(final int delta) {
+        position = Math.max(0, Math.min(steps, position + delta));
+    }
+
+    /**
+     * Stops after a failed transmission. The position is kept and the target
+     * is reset to it.
+     */
+    public synchronized void abort() {
+        target = position;
+        busy = false;
+    }
+
+    /**
+     * @return The estimated position in percent.
+     */
+    public synchronized int getPercent() {
+        return Math.round((position * 100.0f) / steps);
+    }
+
+    /**
+     * @return The number of button presses from 0 to 100 percent.
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    private boolean start() {
+        if (busy) {
+            return false;
+        }
+
+        busy = true;
+        return true;
+    }
+}
@@ -22,6 +22,8 @@ public class ZMoteConfig {
     String overrideUrl;
     BigDecimal retry;
     BigDecimal timeout;
+    BigDecimal suppressionWindow;
+    BigDecimal offlineBuffer;
     String uuid;
 
     /**
@@ -83,6 +85,28 @@ public class ZMoteConfig {
         this.timeout = timeout;
     }
 
+    /**
+     * @return The time in milliseconds in which duplicate commands are dropped as set in the thing's configuration.
+     */
+    public BigDecimal getSuppressionWindow() {
+        return suppressionWindow;
+    }
+
+    public void setSuppressionWindow(final BigDecimal suppressionWindow) {
+        this.suppressionWindow = suppressionWindow;
+    }
+
+    /**
+     * @return The time in seconds commands are kept while the device is offline as set in the thing's configuration.
+     */
+    public BigDecimal getOfflineBuffer() {
+        return offlineBuffer;
+    }
+
+    public void setOfflineBuffer(final BigDecimal offlineBuffer) {
+        this.offlineBuffer = offlineBuffer;
+    }
+
     /**
      * @return The override URL if it is set, else the auto-discovery URL.
      */
@@ -115,6 +139,8 @@ public class ZMoteConfig {
         stringBuilder.append(" configFile=\"").append(configFile).append("\",");
         stringBuilder.append(" retry=\"").append(retry).append("\"");
         stringBuilder.append(" timeout=\"").append(timeout).append("\"");
+        stringBuilder.append(" suppressionWindow=\"").append(suppressionWindow).append("\"");
+        stringBuilder.append(" offlineBuffer=\"").append(offlineBuffer).append("\"");
         stringBuilder.append("]");
 
         return stringBuilder.toString();
@@ -8,6 +8,8 @@
  */
 package org.openhab.binding.zmote.internal.model;
 
+import java.util.Objects;
+
 /**
  * A ZMote device as returned by the discovery service.
  *
@@ -16,6 +18,7 @@ package org.openhab.binding.zmote.internal.model;
 public class ZMoteDevice {
 
     private final String make;
+    private final String networkInterface;
     private final String model;
     private final String revision;
     private final String type;
@@ -24,7 +27,13 @@ public class ZMoteDevice {
 
     public ZMoteDevice(final String make, final String type, final String model, final String revision,
             final String uuid, final String url) {
+        this(make, type, model, revision, uuid, url, null);
+    }
+
+    public ZMoteDevice(final String make, final String type, final String model, final String revision,
+            final String uuid, final String url, final String networkInterface) {
         this.make = make;
+        this.networkInterface = networkInterface;
         this.model = model;
         this.revision = revision;
         this.type = type;
@@ -36,6 +45,13 @@ public class ZMoteDevice {
         return make;
     }
 
+    /**
+     * @return The name of the local network interface the device was discovered on or null if unknown.
+     */
+    public String getNetworkInterface() {
+        return networkInterface;
+    }
+
     public String getModel() {
         return model;
     }
@@ -56,8 +72,31 @@ public class ZMoteDevice {
         return uuid;
     }
 
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof ZMoteDevice)) {
+            return false;
+        }
+
+        final ZMoteDevice device = (ZMoteDevice) other;
+
+        return Objects.equals(uuid, device.uuid) && Objects.equals(url, device.url)
+                && Objects.equals(make, device.make) && Objects.equals(type, device.type)
+                && Objects.equals(model, device.model) && Objects.equals(revision, device.revision)
+                && Objects.equals(networkInterface, device.networkInterface);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(make, type, model, revision, uuid, url, networkInterface);
+    }
+
     @Override
     public String toString() {
-        return String.format("%s %s %s %s [%s] @ %s", make, type, model, revision, uuid, url);
+        return String.format("%s %s %s %s [%s] @ %s (%s)", make, type, model, revision, uuid, url, networkInterface);
     }
 }
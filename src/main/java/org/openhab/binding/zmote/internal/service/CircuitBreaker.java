@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.service;
+
+import org.openhab.binding.zmote.internal.exception.CircuitOpenException;
+
+/**
+ * Stops talking to a device after a number of consecutive communication failures.
+ * While the breaker is open all requests fail immediately. After the cool-down a
+ * single trial request is let through: if it succeeds the breaker closes, if it
+ * fails the breaker opens again. Any sign of life from the device closes it as well.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String uuid;
+    private final int failureThreshold;
+    private final long coolDown;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    /**
+     * Creates a new, closed circuit breaker.
+     *
+     * @param uuid The UUID of the device, used in error messages.
+     * @param failureThreshold The number of consecutive failures after which the breaker opens.
+     * @param coolDown The time in milliseconds after which a trial request is allowed.
+     */
+    public CircuitBreaker(final String uuid, final int failureThreshold, final long coolDown) {
+        if ((failureThreshold < 1) || (coolDown < 0)) {
+            throw new IllegalArgumentException("Invalid circuit breaker configuration!");
+        }
+
+        this.uuid = uuid;
+        this.failureThreshold = failureThreshold;
+        this.coolDown = coolDown;
+    }
+
+    /**
+     * Must be called before each request to the device.
+     *
+     * @throws CircuitOpenException if the breaker is open and the request must not be sent.
+     */
+    public synchronized void acquire() {
+        switch (state) {
+            case CLOSED:
+                return;
+
+            case OPEN:
+                if (getRemainingCoolDown() > 0) {
+                    throw new CircuitOpenException(describe());
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return;
+
+            case HALF_OPEN:
+            default:
+                if (trialInFlight) {
+                    throw new CircuitOpenException(describe());
+                }
+                trialInFlight = true;
+                return;
+        }
+    }
+
+    /**
+     * Records a successful exchange, which closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Records a communication failure.
+     *
+     * @return True if the breaker has been opened by this failure.
+     */
+    public synchronized boolean recordFailure() {
+        final boolean wasOpen = (state == State.OPEN);
+
+        trialInFlight = false;
+        ++failures;
+
+        if ((state == State.HALF_OPEN) || (failures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+
+        return !wasOpen && (state == State.OPEN);
+    }
+
+    /**
+     * Ends a trial request which neither proved nor disproved that the device is reachable.
+     */
+    public synchronized void releaseTrial() {
+        trialInFlight = false;
+    }
+
+    /**
+     * @return The current state of the breaker.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return A human readable description of the breaker state.
+     */
+    public synchronized String describe() {
+        switch (state) {
+            case OPEN:
+                return String.format("Device '%s' is unreachable after %d failed attempts, retrying in %d seconds.",
+                        uuid, failures, (getRemainingCoolDown() + 999) / 1000);
+
+            case HALF_OPEN:
+                return String.format("Device '%s' is unreachable, waiting for a trial request to complete.", uuid);
+
+            case CLOSED:
+            default:
+                return String.format("Device '%s' is reachable.", uuid);
+        }
+    }
+
+    private long getRemainingCoolDown() {
+        return Math.max(0, (openedAt + coolDown) - System.currentTimeMillis());
+    }
+}
@@ -8,6 +8,9 @@
  */
 package org.openhab.binding.zmote.internal.service;
 
+import org.openhab.binding.zmote.internal.model.IRPayload;
+import org.openhab.binding.zmote.internal.util.Deadline;
+
 /**
  * @author Alexander Maret-Huskinson - Initial contribution
  */
@@ -15,6 +18,9 @@ public interface IZMoteClient {
 
     /**
      * Checks if the device is online and if we are talking to the correct device.
+     *
+     * @param timeout The maximum time in seconds we wait for a response. The actual timeout
+     *            adapts to the measured response times of the device.
      */
     void check(int timeout);
 
@@ -23,11 +29,31 @@ public interface IZMoteClient {
      */
     String getUrl();
 
+    /**
+     * @return The time in milliseconds since the device last answered a request.
+     */
+    long getIdleTime();
+
     /**
      * Sends the given IR code to the device.
      *
-     * @param code The IR code to send.
-     * @param timeout The timeout we wait for a response.
+     * @param payload The encoded IR code to send.
+     * @param timeout The maximum time in seconds we wait for a response. The actual timeout
+     *            adapts to the measured response times of the device and is extended by the
+     *            time it takes to transmit the code.
+     * @param deadline The deadline of the command, which further limits the timeout.
+     *
+     * @throws DeadlineExceededException if the deadline expires before a response is received.
+     */
+    void sendir(IRPayload payload, int timeout, Deadline deadline);
+
+    /**
+     * Stops the IR code which is currently sent by the device. Unlike {@link #sendir},
+     * this does not wait for a running transmission to complete.
+     *
+     * @param timeout The maximum time in seconds we wait for a response.
+     *
+     * @return True if the device stopped sending, false if it does not support stopping.
      */
-    void sendir(String code, int timeout);
+    boolean stopir(int timeout);
 }
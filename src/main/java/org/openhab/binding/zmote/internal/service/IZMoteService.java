@@ -8,12 +8,25 @@
  */
 package org.openhab.binding.zmote.internal.service;
 
-import org.openhab.binding.zmote.internal.model.ZMoteConfig;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.openhab.binding.zmote.internal.discovery.IDiscoveryListener;
+import org.openhab.binding.zmote.internal.model.CommandPriority;
+import org.openhab.binding.zmote.internal.model.DeviceConfiguration;
+import org.openhab.binding.zmote.internal.model.GroupResult;
+import org.openhab.binding.zmote.internal.model.Step;
+import org.openhab.binding.zmote.internal.util.Deadline;
 
 /**
+ * The service is registered as discovery listener, so devices which have been
+ * unreachable are accepted again as soon as they are discovered.
+ *
  * @author Alexander Maret-Huskinson - Initial contribution
  */
-public interface IZMoteService {
+public interface IZMoteService extends IDiscoveryListener {
 
     /**
      * Checks if the device is online.
@@ -24,7 +37,12 @@ public interface IZMoteService {
      *
      * @throws ConfigurationException if the configuration is invalid.
      */
-    boolean checkOnline(ZMoteConfig config);
+    boolean checkOnline(DeviceConfiguration config);
+
+    /**
+     * @return The started HTTP client which is shared by all components talking to ZMote devices.
+     */
+    HttpClient getHttpClient();
 
     /**
      * Sends the given IR code to the device.
@@ -37,7 +55,7 @@ public interface IZMoteService {
      * @throws ConfigurationException if the configuration is invalid.
      * @throws CommunicationException if the communication with the device fails.
      */
-    boolean sendCode(ZMoteConfig config, String code);
+    boolean sendCode(DeviceConfiguration config, String code);
 
     /**
      * Sends the given IR code to the device.
@@ -51,7 +69,28 @@ public interface IZMoteService {
      * @throws ConfigurationException if the configuration is invalid.
      * @throws CommunicationException if the communication with the device fails.
      */
-    boolean sendCode(ZMoteConfig config, String code, int repeat);
+    boolean sendCode(DeviceConfiguration config, String code, int repeat);
+
+    /**
+     * Sends the given IR code to the device. All repeats and retries have to be
+     * completed before the deadline, else the remaining transmissions are dropped.
+     * Commands with a higher priority are sent first and may interrupt commands
+     * with a lower priority between two codes.
+     *
+     * @param config The device configuration.
+     * @param code The code to send.
+     * @param repeat The number of times the code will be sent.
+     * @param priority The priority of the command.
+     * @param deadline The deadline of the command.
+     *
+     * @return True if the code was sent, else false.
+     *
+     * @throws ConfigurationException if the configuration is invalid.
+     * @throws CommunicationException if the communication with the device fails.
+     * @throws DeadlineExceededException if the deadline expired.
+     */
+    boolean sendCode(DeviceConfiguration config, String code, int repeat, CommandPriority priority,
+            Deadline deadline);
 
     /**
      * Sends the IR code of the given button key to the device.
@@ -64,7 +103,7 @@ public interface IZMoteService {
      * @throws ConfigurationException if the configuration is invalid.
      * @throws CommunicationException if the communication with the device fails.
      */
-    boolean sendKey(ZMoteConfig config, String button);
+    boolean sendKey(DeviceConfiguration config, String button);
 
     /**
      * Sends the IR code of the given button key to the device.
@@ -78,7 +117,207 @@ public interface IZMoteService {
      * @throws ConfigurationException if the configuration is invalid.
      * @throws CommunicationException if the communication with the device fails.
      */
-    boolean sendKey(ZMoteConfig config, String button, int repeat);
+    boolean sendKey(DeviceConfiguration config, String button, int repeat);
+
+    /**
+     * Sends the IR code of the given button key to the device. All repeats and retries
+     * have to be completed before the deadline, else the remaining transmissions are dropped.
+     * Commands with a higher priority are sent first and may interrupt commands
+     * with a lower priority between two codes.
+     *
+     * @param config The device configuration.
+     * @param button The button key to send.
+     * @param repeat The number of times the code will be sent.
+     * @param priority The priority of the command.
+     * @param deadline The deadline of the command.
+     *
+     * @return True if the code was sent, else false.
+     *
+     * @throws ConfigurationException if the configuration is invalid.
+     * @throws CommunicationException if the communication with the device fails.
+     * @throws DeadlineExceededException if the deadline expired.
+     */
+    boolean sendKey(DeviceConfiguration config, String button, int repeat, CommandPriority priority,
+            Deadline deadline);
+
+    /**
+     * Sends a sequence of button keys and raw codes to the device. All codes are
+     * resolved before anything is sent and the sequence is transmitted back to back
+     * without other commands of the same priority in between. Unless a step has
+     * its own delay, the pause after a code is as long as its transmission.
+     *
+     * @param config The device configuration.
+     * @param steps The steps of the sequence.
+     *
+     * @return True if the sequence was sent, else false.
+     *
+     * @throws ConfigurationException if the configuration is invalid.
+     * @throws CommunicationException if the communication with the device fails.
+     */
+    boolean sendKeys(DeviceConfiguration config, List<Step> steps);
+
+    /**
+     * Sends a sequence of button keys and raw codes to the device. The whole
+     * sequence has to be completed before the deadline, else the remaining codes
+     * are dropped. A command with a higher priority may interrupt the sequence
+     * between two codes.
+     *
+     * @param config The device configuration.
+     * @param steps The steps of the sequence.
+     * @param priority The priority of the command.
+     * @param deadline The deadline of the command.
+     *
+     * @return True if the sequence was sent, else false.
+     *
+     * @throws ConfigurationException if the configuration is invalid.
+     * @throws CommunicationException if the communication with the device fails.
+     * @throws DeadlineExceededException if the deadline expired.
+     */
+    boolean sendKeys(DeviceConfiguration config, List<Step> steps, CommandPriority priority, Deadline deadline);
+
+    /**
+     * Buffers the given IR code while the device is offline. It is sent as soon as
+     * the device is reachable again, unless the offline buffer time of the
+     * configuration has passed. The buffer of each device is bounded, the oldest
+     * commands are dropped when it is full.
+     *
+     * @param config The device configuration.
+     * @param code The code to send.
+     * @param priority The priority of the command.
+     *
+     * @return True if the code was buffered, false if buffering is disabled.
+     */
+    boolean bufferCode(DeviceConfiguration config, String code, CommandPriority priority);
+
+    /**
+     * Buffers the IR code of the given button key while the device is offline. It
+     * is sent as soon as the device is reachable again, unless the offline buffer
+     * time of the configuration has passed. The buffer of each device is bounded,
+     * the oldest commands are dropped when it is full.
+     *
+     * @param config The device configuration.
+     * @param button The button key to send.
+     * @param priority The priority of the command.
+     *
+     * @return True if the code was buffered, false if buffering is disabled or the button is unknown.
+     */
+    boolean bufferKey(DeviceConfiguration config, String button, CommandPriority priority);
+
+    /**
+     * Presses the given button key several times. Unlike
+     * {@link #sendKey(DeviceConfiguration, String, int, CommandPriority, Deadline)},
+     * the presses are encoded in the repeat field of the code, so the device sends
+     * them in as few transmissions as possible. Each transmission takes about a
+     * second at most, so a higher priority command does not have to wait long.
+     *
+     * @param config The device configuration.
+     * @param button The button key to press.
+     * @param presses The number of presses.
+     * @param priority The priority of the command.
+     * @param deadline The deadline of the command.
+     *
+     * @return True if the presses were sent, else false.
+     *
+     * @throws ConfigurationException if the configuration is invalid.
+     * @throws CommunicationException if the communication with the device fails.
+     * @throws DeadlineExceededException if the deadline expired.
+     */
+    boolean sendKeyPresses(DeviceConfiguration config, String button, int presses, CommandPriority priority,
+            Deadline deadline);
+
+    /**
+     * Starts sending the IR code of the given button key until {@link #stopHold}
+     * is called, as if the button was held down. The device repeats the code by
+     * itself, so the IR signal has hardly any gaps. As a safety measure, a button
+     * is released after the maximum hold duration at the latest.
+     * Holding another button on the same device releases the previous one.
+     *
+     * @param config The device configuration.
+     * @param button The button key to hold.
+     * @param priority The priority of the command.
+     *
+     * @return True if the button is held, false if it is unknown.
+     *
+     * @throws ConfigurationException if the configuration is invalid.
+     */
+    boolean startHold(DeviceConfiguration config, String button, CommandPriority priority);
+
+    /**
+     * Releases the button which is held on the given device, if any. The device
+     * stops sending within the current frame.
+     *
+     * @param config The device configuration.
+     */
+    void stopHold(DeviceConfiguration config);
+
+    /**
+     * Sends the given IR code to several things at once. The devices are served in
+     * parallel, so the whole command takes about as long as the slowest device. Things
+     * sharing a device are sent one after another. A failing device does not affect the others.
+     *
+     * @param configs The configurations of the things.
+     * @param code The code to send.
+     * @param priority The priority of the command.
+     * @param deadline The deadline of the command.
+     *
+     * @return The outcome for each thing.
+     */
+    GroupResult sendCodeToGroup(List<DeviceConfiguration> configs, String code, CommandPriority priority,
+            Deadline deadline);
+
+    /**
+     * Sends the IR code of the given button key to several things at once. The
+     * devices are served in parallel, so the whole command takes about as long as
+     * the slowest device. Things sharing a device are sent one after another. A
+     * failing device does not affect the others.
+     *
+     * @param configs The configurations of the things.
+     * @param button The button key to send, looked up in the configuration file of each thing.
+     * @param priority The priority of the command.
+     * @param deadline The deadline of the command.
+     *
+     * @return The outcome for each thing.
+     */
+    GroupResult sendKeyToGroup(List<DeviceConfiguration> configs, String button, CommandPriority priority,
+            Deadline deadline);
+
+    /**
+     * Returns how long the commands of each thing had to wait for the given device,
+     * which shows the contention between things sharing one device.
+     *
+     * @param uuid The UUID of the device.
+     *
+     * @return The wait times by thing UID.
+     */
+    Map<String, TransmitLock.WaitStatistics> getWaitStatistics(String uuid);
+
+    /**
+     * @return The number of commands dropped because their deadline expired.
+     */
+    long getExpiredCommandCount();
+
+    /**
+     * @return The number of commands which failed due to device or network errors.
+     */
+    long getFailedCommandCount();
+
+    /**
+     * Returns the executor which runs each task on its own virtual thread, if the
+     * binding is configured to use virtual threads and the runtime supports them.
+     * Blocking tasks should be run on it instead of a shared thread pool.
+     *
+     * @return The executor or null if virtual threads are not used.
+     */
+    ExecutorService getVirtualThreadExecutor();
+
+    /**
+     * Returns the executor of the binding for blocking work like transmissions, so it
+     * does not hold a thread of the shared framework pools. This is the virtual thread
+     * executor if it is used, else a thread pool of the binding.
+     *
+     * @return The executor.
+     */
+    ExecutorService getWorkerExecutor();
 
     /**
      * Registers a device at the service. This will cache its configuration file
@@ -86,12 +325,12 @@ public interface IZMoteService {
      *
      * @param config The device to register.
      */
-    void registerConfiguration(ZMoteConfig config);
+    void registerConfiguration(DeviceConfiguration config);
 
     /**
      * Unregisters the given configuration which will free its resources.
      *
      * @param config The device to unregister.
      */
-    void unregisterConfiguration(ZMoteConfig config);
+    void unregisterConfiguration(DeviceConfiguration config);
 }
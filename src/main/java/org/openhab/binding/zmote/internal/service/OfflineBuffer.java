@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.openhab.binding.zmote.internal.util.Deadline;
+
+/**
+ * A bounded buffer of commands which were sent while a device was unreachable.
+ * Each command expires on its own, so commands are only replayed if they are
+ * still useful. If the buffer is full, the oldest command is dropped.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ *
+ * @param <T> The type of the buffered commands.
+ */
+public class OfflineBuffer<T> {
+
+    private static final class Entry<T> {
+
+        private final T command;
+        private final Deadline expiry;
+
+        private Entry(final T command, final Deadline expiry) {
+            this.command = command;
+            this.expiry = expiry;
+        }
+    }
+
+    private final int capacity;
+    private final Deque<Entry<T>> entries = new ArrayDeque<>();
+
+    private long dropped = 0;
+    private long expired = 0;
+
+    /**
+     * Creates a new buffer.
+     *
+     * @param capacity The maximum number of buffered commands.
+     */
+    public OfflineBuffer(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive!");
+        }
+
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a command to the end of the buffer.
+     *
+     * @param command The command.
+     * @param expiry The point in time after which the command must not be replayed anymore.
+     */
+    public synchronized void add(final T command, final Deadline expiry) {
+        removeExpired();
+
+        if (entries.size() >= capacity) {
+            entries.removeFirst();
+            ++dropped;
+        }
+
+        entries.addLast(new Entry<>(command, expiry));
+    }
+
+    /**
+     * Removes all commands from the buffer.
+     *
+     * @return The commands which have not expired yet, oldest first.
+     */
+    public synchronized List<T> drain() {
+        removeExpired();
+
+        final List<T> commands = new ArrayList<>(entries.size());
+
+        for (final Entry<T> entry : entries) {
+            commands.add(entry.command);
+        }
+
+        entries.clear();
+        return commands;
+    }
+
+    /**
+     * @return True if there are no buffered commands.
+     */
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return The number of commands which were dropped because the buffer was full.
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * @return The number of commands which expired before they could be replayed.
+     */
+    public synchronized long getExpiredCount() {
+        return expired;
+    }
+
+    private void removeExpired() {
+        // entries may have different lifetimes, so all of them have to be checked
+        final Iterator<Entry<T>> iterator = entries.iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().expiry.isExpired()) {
+                iterator.remove();
+                ++expired;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.service;
+
+/**
+ * Estimates a request timeout from measured round-trip times, the same way TCP
+ * computes its retransmission timeout (RFC 6298): a smoothed round-trip time plus
+ * four times its variation. Each timeout doubles the estimate until the next
+ * response is measured.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class RttEstimator {
+
+    private static final double ALPHA = 1.0 / 8.0;
+    private static final double BETA = 1.0 / 4.0;
+    private static final int K = 4;
+    private static final int MAX_BACKOFF = 16;
+
+    private final long minTimeout;
+
+    private double smoothedRtt = -1;
+    private double rttVariation = 0;
+    private int backOff = 0;
+
+    /**
+     * Creates a new estimator without any samples.
+     *
+     * @param minTimeout The lower bound of the computed timeout in milliseconds.
+     */
+    public RttEstimator(final long minTimeout) {
+        if (minTimeout < 1) {
+            throw new IllegalArgumentException("Invalid minimum timeout!");
+        }
+
+        this.minTimeout = minTimeout;
+    }
+
+    /**
+     * Adds a measured round-trip time.
+     *
+     * @param rtt The round-trip time in milliseconds.
+     */
+    public synchronized void addSample(final long rtt) {
+        final double sample = Math.max(0, rtt);
+
+        if (smoothedRtt < 0) {
+            smoothedRtt = sample;
+            rttVariation = sample / 2;
+        } else {
+            rttVariation = ((1 - BETA) * rttVariation) + (BETA * Math.abs(smoothedRtt - sample));
+            smoothedRtt = ((1 - ALPHA) * smoothedRtt) + (ALPHA * sample);
+        }
+
+        backOff = 0;
+    }
+
+    /**
+     * Records a request which timed out, which doubles the next timeout.
+     */
+    public synchronized void onTimeout() {
+        if ((smoothedRtt >= 0) && (backOff < MAX_BACKOFF)) {
+            ++backOff;
+        }
+    }
+
+    /**
+     * Returns the timeout for the next request.
+     *
+     * @param maxTimeout The upper bound in milliseconds, used as long as nothing has been measured.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public synchronized long getTimeout(final long maxTimeout) {
+        if (smoothedRtt < 0) {
+            return maxTimeout;
+        }
+
+        final long timeout = Math.max(minTimeout, (long) Math.ceil(smoothedRtt + (K * rttVariation)));
+
+        return Math.min(maxTimeout, timeout << backOff);
+    }
+
+    /**
+     * @return The smoothed round-trip time in milliseconds or -1 if nothing has been measured.
+     */
+    public synchronized long getSmoothedRtt() {
+        return (smoothedRtt < 0) ? -1 : Math.round(smoothedRtt);
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.service;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.binding.zmote.internal.exception.DeadlineExceededException;
+import org.openhab.binding.zmote.internal.exception.ZMoteBindingException;
+import org.openhab.binding.zmote.internal.model.CommandPriority;
+import org.openhab.binding.zmote.internal.util.Deadline;
+
+/**
+ * Grants exclusive access to the IR transmitter of one device. Waiting commands
+ * are served by priority first. Within the same priority, the sources sharing the
+ * device (usually things) take turns, so a source sending a burst of commands
+ * cannot starve the others. A command holding the lock calls
+ * {@link #allowPreemption(Ticket, Deadline)} between two codes, which lets waiting
+ * commands with a higher priority go first.
+ *
+ * A {@link ReentrantLock} is used instead of monitors, so waiting virtual threads
+ * do not block their carrier thread.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class TransmitLock {
+
+    /**
+     * Identifies a command which holds or waits for the lock.
+     */
+    public static final class Ticket implements Comparable<Ticket> {
+
+        private final CommandPriority priority;
+        private final long round;
+        private final long sequence;
+
+        private Ticket(final CommandPriority priority, final long round, final long sequence) {
+            this.priority = priority;
+            this.round = round;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final Ticket other) {
+            int result = priority.compareTo(other.priority);
+
+            if (result == 0) {
+                result = Long.compare(round, other.round);
+            }
+
+            return (result != 0) ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * The time the commands of one source had to wait for the transmitter.
+     */
+    public static final class WaitStatistics {
+
+        private final long count;
+        private final long totalWait;
+        private final long maxWait;
+
+        private WaitStatistics(final long count, final long totalWait, final long maxWait) {
+            this.count = count;
+            this.totalWait = totalWait;
+            this.maxWait = maxWait;
+        }
+
+        private WaitStatistics add(final long wait) {
+            return new WaitStatistics(count + 1, totalWait + wait, Math.max(maxWait, wait));
+        }
+
+        /**
+         * @return The number of commands.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return The average wait time in milliseconds.
+         */
+        public long getAverageWait() {
+            return (count > 0) ? (totalWait / count) : 0;
+        }
+
+        /**
+         * @return The longest wait time in milliseconds.
+         */
+        public long getMaxWait() {
+            return maxWait;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, avg=%dms, max=%dms", count, getAverageWait(), maxWait);
+        }
+    }
+
+    private static final WaitStatistics NO_WAIT = new WaitStatistics(0, 0, 0);
+
+    private final ReentrantLock mutex = new ReentrantLock();
+    private final Condition changed = mutex.newCondition();
+
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+    private final Map<CommandPriority, Long> currentRounds = new EnumMap<>(CommandPriority.class);
+    private final Map<String, Long> lastRounds = new HashMap<>();
+    private final Map<String, WaitStatistics> waitStatistics = new HashMap<>();
+
+    private Ticket owner = null;
+    private long sequence = 0;
+    private long preemptions = 0;
+
+    /**
+     * Waits until the lock is available for the given priority.
+     *
+     * @param priority The priority of the command.
+     * @param source The source of the command, e.g. the thing UID.
+     * @param deadline The deadline of the command.
+     *
+     * @return The ticket which has to be passed to {@link #release(Ticket)}.
+     *
+     * @throws DeadlineExceededException if the deadline expired while waiting.
+     */
+    public Ticket acquire(final CommandPriority priority, final String source, final Deadline deadline) {
+        mutex.lock();
+
+        try {
+            final long startTime = System.nanoTime();
+            final Ticket ticket = new Ticket(priority, nextRound(priority, source), sequence++);
+
+            await(ticket, deadline);
+
+            final long wait = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            final WaitStatistics statistics = waitStatistics.get(source);
+            waitStatistics.put(source, ((statistics != null) ? statistics : NO_WAIT).add(wait));
+
+            return ticket;
+
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Hands the lock over to a waiting command with a higher priority, if there is
+     * one, and waits until it is available again. The ticket keeps its position.
+     *
+     * @param ticket The ticket of the current owner.
+     * @param deadline The deadline of the command.
+     *
+     * @throws DeadlineExceededException if the deadline expired while waiting.
+     */
+    public void allowPreemption(final Ticket ticket, final Deadline deadline) {
+        mutex.lock();
+
+        try {
+            final Ticket next = waiting.peek();
+
+            if ((owner != ticket) || (next == null) || !next.priority.isHigherThan(ticket.priority)) {
+                return;
+            }
+
+            ++preemptions;
+            owner = null;
+            changed.signalAll();
+
+            await(ticket, deadline);
+
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Releases the lock.
+     *
+     * @param ticket The ticket of the current owner.
+     */
+    public void release(final Ticket ticket) {
+        mutex.lock();
+
+        try {
+            if (owner == ticket) {
+                owner = null;
+                changed.signalAll();
+            }
+
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * @return The number of times a command was interrupted by one with a higher priority.
+     */
+    public long getPreemptionCount() {
+        mutex.lock();
+
+        try {
+            return preemptions;
+
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * @return The wait times by source.
+     */
+    public Map<String, WaitStatistics> getWaitStatistics() {
+        mutex.lock();
+
+        try {
+            return new HashMap<>(waitStatistics);
+
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Returns the round in which a new command of the given source is served. Each
+     * source gets one command per round, so the commands of different sources are
+     * interleaved while the commands of one source keep their order.
+     */
+    private long nextRound(final CommandPriority priority, final String source) {
+        final String key = priority + "/" + source;
+        final Long currentRound = currentRounds.get(priority);
+        final Long lastRound = lastRounds.get(key);
+
+        final long round = Math.max((currentRound != null) ? currentRound : 0,
+                (lastRound != null) ? (lastRound + 1) : 0);
+
+        lastRounds.put(key, round);
+        return round;
+    }
+
+    private void await(final Ticket ticket, final Deadline deadline) {
+        waiting.add(ticket);
+
+        try {
+            while ((owner != null) || (waiting.peek() != ticket)) {
+                if (deadline.isExpired()) {
+                    throw new DeadlineExceededException("Deadline expired while waiting for the device!");
+                }
+
+                final long remaining = deadline.getRemaining();
+
+                if (remaining == Long.MAX_VALUE) {
+                    changed.await();
+                } else {
+                    changed.await(Math.max(1, remaining), TimeUnit.MILLISECONDS);
+                }
+            }
+
+            owner = ticket;
+
+            final Long currentRound = currentRounds.get(ticket.priority);
+
+            if ((currentRound == null) || (currentRound < ticket.round)) {
+                currentRounds.put(ticket.priority, ticket.round);
+            }
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ZMoteBindingException("Interrupted while waiting for the device!", e);
+
+        } finally {
+            waiting.remove(ticket);
+            changed.signalAll(); // the next waiter may be at the head of the queue now
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Probes the health of all registered devices from one binding-wide scheduler.
+ * Each physical device is probed at most once per interval. Concurrent callers
+ * asking for the same device share a single in-flight probe and results are
+ * cached for the length of one interval. Any successful exchange with a device
+ * counts as a heartbeat, so only devices which have been idle for a whole
+ * interval are actively probed.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class ZMoteHealthMonitor {
+
+    private final Logger logger = LoggerFactory.getLogger(ZMoteHealthMonitor.class);
+
+    private final Map<String, HealthEntry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final long interval;
+
+    private ScheduledFuture<?> monitorFuture = null;
+    private volatile Executor probeExecutor;
+
+    /**
+     * Creates a new health monitor.
+     *
+     * @param scheduler The scheduler used to run the periodic probes.
+     * @param interval The probe interval and result lifetime in milliseconds.
+     */
+    public ZMoteHealthMonitor(final ScheduledExecutorService scheduler, final long interval) {
+        if ((scheduler == null) || (interval < 2)) {
+            throw new IllegalArgumentException("Invalid health monitor configuration!");
+        }
+
+        this.scheduler = scheduler;
+        this.probeExecutor = scheduler;
+        this.interval = interval;
+    }
+
+    /**
+     * Returns the health of the given device. A cached result is returned if it is
+     * not older than one interval. Else, the device is probed once, with concurrent
+     * callers waiting for the same probe.
+     *
+     * @param uuid The UUID of the device.
+     * @param probe The probe, which returns true if the device is online.
+     *
+     * @return True if the device is online, else false.
+     */
+    public boolean checkOnline(final String uuid, final BooleanSupplier probe) {
+        final HealthEntry entry = entries.computeIfAbsent(uuid, key -> new HealthEntry());
+        final CompletableFuture<Boolean> future;
+        final boolean runProbe;
+
+        synchronized (entry) {
+            if (entry.isFresh(System.currentTimeMillis(), interval)) {
+                return entry.online;
+            }
+
+            runProbe = (entry.inFlight == null);
+
+            if (runProbe) {
+                entry.inFlight = new CompletableFuture<>();
+            }
+
+            future = entry.inFlight;
+        }
+
+        if (runProbe) {
+            executeProbe(probe, entry, future);
+        }
+
+        try {
+            return future.join();
+
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Records a successful exchange with the given device. The device is considered
+     * online without further probes until it has been idle for one interval.
+     *
+     * @param uuid The UUID of the device.
+     */
+    public void recordSuccess(final String uuid) {
+        final HealthEntry entry = entries.computeIfAbsent(uuid, key -> new HealthEntry());
+
+        synchronized (entry) {
+            entry.online = true;
+            entry.lastCheck = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Registers a device for periodic probing. Several things may register the same
+     * device, registering it again replaces the probe. Devices which are only checked
+     * using {@link #checkOnline(String, BooleanSupplier)} are not probed periodically.
+     *
+     * @param uuid The UUID of the device.
+     * @param probe The probe, which returns true if the device is online.
+     */
+    public void register(final String uuid, final BooleanSupplier probe) {
+        entries.compute(uuid, (key, entry) -> {
+            final HealthEntry registered = (entry != null) ? entry : new HealthEntry();
+
+            synchronized (registered) {
+                registered.probe = probe;
+                ++registered.registrations;
+            }
+
+            return registered;
+        });
+    }
+
+    /**
+     * Releases one registration of the given device. Once the last one is released,
+     * the device is not probed anymore and its health is forgotten.
+     *
+     * @param uuid The UUID of the device.
+     */
+    public void unregister(final String uuid) {
+        entries.computeIfPresent(uuid, (key, entry) -> {
+            synchronized (entry) {
+                return (--entry.registrations > 0) ? entry : null;
+            }
+        });
+    }
+
+    /**
+     * Sets the executor which runs the blocking probes.
+     *
+     * @param probeExecutor The executor, null to use the scheduler.
+     */
+    public void setProbeExecutor(final Executor probeExecutor) {
+        this.probeExecutor = (probeExecutor != null) ? probeExecutor : scheduler;
+    }
+
+    /**
+     * Starts the periodic probes.
+     */
+    public synchronized void start() {
+        stop();
+        // checked twice per interval, so each device is probed about once per interval
+        monitorFuture = scheduler.scheduleWithFixedDelay(this::probeStaleDevices, interval / 2, interval / 2,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic probes and forgets all devices.
+     */
+    public synchronized void stop() {
+        if (monitorFuture != null) {
+            monitorFuture.cancel(true);
+            monitorFuture = null;
+        }
+        entries.clear();
+    }
+
+    private void executeProbe(final BooleanSupplier probe, final HealthEntry entry,
+            final CompletableFuture<Boolean> future) {
+        try {
+            final boolean online = probe.getAsBoolean();
+
+            synchronized (entry) {
+                entry.online = online;
+                entry.lastCheck = System.currentTimeMillis();
+                entry.inFlight = null;
+            }
+
+            future.complete(online);
+
+        } catch (final RuntimeException e) {
+            synchronized (entry) {
+                entry.inFlight = null; // errors are not cached, the next caller probes again
+            }
+
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void probeStaleDevices() {
+        for (final Map.Entry<String, HealthEntry> mapEntry : entries.entrySet()) {
+            try {
+                final HealthEntry entry = mapEntry.getValue();
+                final boolean stale;
+
+                synchronized (entry) {
+                    stale = (entry.probe != null) && (entry.inFlight == null)
+                            && !entry.isFresh(System.currentTimeMillis(), interval);
+                }
+
+                if (stale) {
+                    probeExecutor.execute(() -> safeCheckOnline(mapEntry.getKey(), entry));
+                }
+
+            } catch (final Exception e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Ignored exception while scheduling health probe for device {}.",
+                            mapEntry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private void safeCheckOnline(final String uuid, final HealthEntry entry) {
+        try {
+            final BooleanSupplier probe;
+
+            synchronized (entry) {
+                probe = entry.probe;
+            }
+
+            if ((probe != null) && (entries.get(uuid) == entry)) {
+                checkOnline(uuid, probe);
+            }
+
+        } catch (final Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Health probe for device {} failed.", uuid, e);
+            }
+        }
+    }
+
+    private static class HealthEntry {
+
+        private BooleanSupplier probe = null;
+        private int registrations = 0;
+        private CompletableFuture<Boolean> inFlight = null;
+        private boolean online = false;
+        private long lastCheck = Long.MIN_VALUE;
+
+        public boolean isFresh(final long currentTime, final long interval) {
+            return (lastCheck != Long.MIN_VALUE) && ((currentTime - lastCheck) < interval);
+        }
+    }
+}
@@ -9,20 +9,47 @@
 package org.openhab.binding.zmote.internal.service;
 
 import java.io.File;
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.zmote.ZMoteBindingConstants;
+import org.openhab.binding.zmote.internal.config.BindingConfiguration;
 import org.openhab.binding.zmote.internal.config.IRCodeConfigurationCache;
 import org.openhab.binding.zmote.internal.config.RemoteConfiguration;
+import org.openhab.binding.zmote.internal.exception.CircuitOpenException;
 import org.openhab.binding.zmote.internal.exception.CommunicationException;
 import org.openhab.binding.zmote.internal.exception.ConfigurationException;
+import org.openhab.binding.zmote.internal.exception.DeadlineExceededException;
 import org.openhab.binding.zmote.internal.exception.DeviceBusyException;
+import org.openhab.binding.zmote.internal.exception.InvalidCodeException;
 import org.openhab.binding.zmote.internal.exception.ZMoteBindingException;
+import org.openhab.binding.zmote.internal.model.CommandPriority;
+import org.openhab.binding.zmote.internal.model.DeviceConfiguration;
+import org.openhab.binding.zmote.internal.model.GroupResult;
 import org.openhab.binding.zmote.internal.model.IRCode;
-import org.openhab.binding.zmote.internal.model.ZMoteConfig;
+import org.openhab.binding.zmote.internal.model.IRPayload;
+import org.openhab.binding.zmote.internal.model.Step;
+import org.openhab.binding.zmote.internal.model.ZMoteDevice;
+import org.openhab.binding.zmote.internal.util.Deadline;
+import org.openhab.binding.zmote.internal.util.LruMap;
+import org.openhab.binding.zmote.internal.util.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,68 +58,376 @@ import org.slf4j.LoggerFactory;
  */
 public class ZMoteService implements IZMoteService {
 
+    /**
+     * A command which was sent while the device was offline.
+     */
+    private static final class BufferedCommand {
+
+        private final DeviceConfiguration config;
+        private final IRCode code;
+        private final CommandPriority priority;
+        private final Deadline expiry;
+
+        private BufferedCommand(final DeviceConfiguration config, final IRCode code,
+                final CommandPriority priority, final Deadline expiry) {
+            this.config = config;
+            this.code = code;
+            this.priority = priority;
+            this.expiry = expiry;
+        }
+    }
+
+    /**
+     * The state of a button which is held down.
+     */
+    private static final class Hold {
+
+        private boolean stopped = false;
+        private boolean transmitting = false;
+
+        private synchronized boolean begin() {
+            transmitting = !stopped;
+            return transmitting;
+        }
+
+        private synchronized void end() {
+            transmitting = false;
+        }
+
+        /**
+         * @return True if a code is being sent right now, which has to be stopped on the device.
+         */
+        private synchronized boolean stop() {
+            stopped = true;
+            return transmitting;
+        }
+    }
+
+    /**
+     * The transmission time the device repeats a held code by itself before it is sent again.
+     */
+    private static final long HOLD_CHUNK_DURATION = 500;
+
+    /**
+     * The transmission time of the button presses which are combined into a single code.
+     */
+    private static final long PRESS_CHUNK_DURATION = 1000;
+
+    /**
+     * The default pause between the codes of a sequence. The device answers once it has
+     * sent a code, so this only keeps two equal codes from being taken as one press.
+     */
+    private static final long SEQUENCE_GAP = 50;
+
+    /**
+     * The highest repeat count a device accepts in a single code.
+     */
+    private static final int MAX_REPEAT = 50;
+
+    /**
+     * The number of raw IR codes which are kept parsed, e.g. from sitemap mappings.
+     */
+    private static final int RAW_CODE_CACHE_SIZE = 128;
+
+    /**
+     * How often a device is probed at most, by the health monitor or to keep its connection open.
+     */
+    private static final long HEALTH_INTERVAL = TimeUnit.SECONDS
+            .toMillis(ZMoteBindingConstants.DISCOVERY_UPDATE_INTERVAL);
+
+    private static final String HTTP_THREAD_NAME = "zmote-http";
+    private static final String VIRTUAL_THREAD_NAME = "zmote";
+
+    /**
+     * An IR code which is part of a command, followed by a pause.
+     */
+    private static final class Transmission {
+
+        private final IRCode code;
+        private final IRPayload payload;
+        private final int repeat;
+        private final long pause;
+
+        private Transmission(final IRCode code, final int repeat, final long pause) {
+            this.code = code;
+            this.payload = null;
+            this.repeat = repeat;
+            this.pause = pause;
+        }
+
+        private Transmission(final IRPayload payload, final int repeat, final long pause) {
+            this.code = null;
+            this.payload = payload;
+            this.repeat = repeat;
+            this.pause = pause;
+        }
+
+        private IRPayload nextPayload() {
+            return (code != null) ? code.nextPayload() : payload;
+        }
+    }
+
     private final Logger logger = LoggerFactory.getLogger(ZMoteService.class);
 
     private final HttpClient httpClient = new HttpClient();
+    private final ScheduledExecutorService scheduler = ThreadPoolManager
+            .getScheduledPool(ZMoteService.class.getName());
+    private ScheduledFuture<?> keepAliveFuture = null;
+    private ScheduledFuture<?> statisticsFuture = null;
+    private long loggedExpiredCommands = 0;
+    private long loggedFailedCommands = 0;
+    private volatile ExecutorService virtualExecutor = null;
+    private QueuedThreadPool httpThreadPool = null;
+    private List<String> httpSettings = null;
+    // incremented when the HTTP client is restarted, requests aborted by this are no device failures
+    private volatile long httpGeneration = 0;
+    private final ExecutorService workerPool = ThreadPoolManager.getPool(ZMoteService.class.getName() + ".worker");
+    private final ZMoteHealthMonitor healthMonitor = new ZMoteHealthMonitor(scheduler, HEALTH_INTERVAL);
 
     private final Map<String, IZMoteClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, TransmitLock> transmitLocks = new ConcurrentHashMap<>();
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final Map<String, OfflineBuffer<BufferedCommand>> offlineBuffers = new ConcurrentHashMap<>();
+    private final Set<String> devicesWithoutStop = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> deviceTimeouts = new ConcurrentHashMap<>();
+
+    private final AtomicLong expiredCommands = new AtomicLong();
+    private final AtomicLong failedCommands = new AtomicLong();
     private final Map<String, IRCodeConfigurationCache> files = new ConcurrentHashMap<>();
+    private final Map<String, IRCode> rawCodes = Collections.synchronizedMap(new LruMap<>(RAW_CODE_CACHE_SIZE));
+
+    // guarded by the (un)registerConfiguration monitor
+    private final Map<String, Integer> deviceRegistrations = new HashMap<>();
+    private final Map<String, Integer> fileRegistrations = new HashMap<>();
 
     @Override
-    public boolean checkOnline(final ZMoteConfig config) {
+    public ExecutorService getVirtualThreadExecutor() {
+        return virtualExecutor;
+    }
+
+    @Override
+    public boolean checkOnline(final DeviceConfiguration config) {
         final IZMoteClient client = findOrCreateZmoteClient(config);
+        final int timeout = config.getTimeout();
+        final String uuid = config.getUuid();
 
-        try {
-            client.check(getTimeout(config));
-            return true;
+        return healthMonitor.checkOnline(uuid, () -> probe(uuid, client, timeout));
+    }
 
-        } catch (final CommunicationException e) {
-            return false;
+    @Override
+    public void deviceDiscovered(final ZMoteDevice device) {
+        final CircuitBreaker breaker = breakers.get(device.getUuid());
+
+        if (breaker != null) {
+            breaker.recordSuccess(); // the device is back
         }
+
+        flushOfflineBuffer(device.getUuid(), device.getUrl());
+    }
+
+    @Override
+    public HttpClient getHttpClient() {
+        return httpClient;
     }
 
     @Override
-    public boolean sendCode(final ZMoteConfig config, final String code) {
+    public boolean sendCode(final DeviceConfiguration config, final String code) {
         return sendCode(config, code, 1);
     }
 
     @Override
-    public boolean sendCode(final ZMoteConfig config, final String code, final int repeat) {
-        return transmitCode(config, new IRCode(code), repeat);
+    public boolean sendCode(final DeviceConfiguration config, final String code, final int repeat) {
+        return sendCode(config, code, repeat, CommandPriority.NORMAL, Deadline.none());
+    }
+
+    @Override
+    public boolean sendCode(final DeviceConfiguration config, final String code, final int repeat,
+            final CommandPriority priority, final Deadline deadline) {
+        return transmitCodes(config, Collections.singletonList(new Transmission(findOrParseRawCode(code), repeat, 0)),
+                priority, deadline);
     }
 
     @Override
-    public boolean sendKey(final ZMoteConfig config, final String button) {
+    public boolean sendKey(final DeviceConfiguration config, final String button) {
         return sendKey(config, button, 1);
     }
 
     @Override
-    public boolean sendKey(final ZMoteConfig config, final String button, final int repeat) {
+    public boolean sendKey(final DeviceConfiguration config, final String button, final int repeat) {
+        return sendKey(config, button, repeat, CommandPriority.NORMAL, Deadline.none());
+    }
+
+    @Override
+    public boolean sendKey(final DeviceConfiguration config, final String button, final int repeat,
+            final CommandPriority priority, final Deadline deadline) {
+        final IRCode code = findCode(config, button);
+
+        if (code == null) {
+            return false;
+        }
+
+        return transmitCodes(config, Collections.singletonList(new Transmission(code, repeat, 0)), priority,
+                deadline);
+    }
+
+    @Override
+    public boolean sendKeys(final DeviceConfiguration config, final List<Step> steps) {
+        return sendKeys(config, steps, CommandPriority.NORMAL, Deadline.none());
+    }
+
+    @Override
+    public boolean sendKeys(final DeviceConfiguration config, final List<Step> steps,
+            final CommandPriority priority, final Deadline deadline) {
+        final List<String> buttons = new ArrayList<>();
+
+        for (final Step step : steps) {
+            if (step.getKey() != null) {
+                buttons.add(step.getKey());
+            }
+        }
+
         final String configFile = config.getConfigFile();
+        List<IRCode> codes = Collections.emptyList();
 
-        if (configFile == null) {
-            if (logger.isErrorEnabled()) {
-                logger.error("Cannot send button key {} to device {} as no configuration file has been set!",
-                        configFile, config.getUuid());
+        if (!buttons.isEmpty()) {
+            if (configFile == null) {
+                if (logger.isErrorEnabled()) {
+                    logger.error("Cannot send key sequence to device {} as no configuration file has been set!",
+                            config.getUuid());
+                }
+                return false;
             }
+
+            codes = findOrCreateIRCodeCache(configFile).getCodes(buttons);
+        }
+
+        // resolve the whole sequence first, so nothing is sent if a key is missing
+        final List<Transmission> transmissions = new ArrayList<>(steps.size());
+        int keyIndex = 0;
+
+        for (final Step step : steps) {
+            final IRCode code = (step.getKey() != null) ? codes.get(keyIndex++) : findOrParseRawCode(step.getCode());
+
+            if (code == null) {
+                if (logger.isErrorEnabled()) {
+                    logger.error("No IR code found for button '{}' in config file '{}'.", step.getKey(),
+                            configFile);
+                }
+                return false;
+            }
+
+            final long pause = (step.getDelay() == Step.DEFAULT_DELAY) ? SEQUENCE_GAP : step.getDelay();
+            transmissions.add(new Transmission(code, 1, pause));
+        }
+
+        return transmitCodes(config, transmissions, priority, deadline);
+    }
+
+    @Override
+    public boolean bufferCode(final DeviceConfiguration config, final String code, final CommandPriority priority) {
+        return bufferCommand(config, findOrParseRawCode(code), priority);
+    }
+
+    @Override
+    public boolean bufferKey(final DeviceConfiguration config, final String button, final CommandPriority priority) {
+        if (config.getOfflineBuffer() <= 0) {
             return false;
         }
 
-        final IRCodeConfigurationCache codesCache = findOrCreateIRCodeCache(configFile);
-        final IRCode code = codesCache.getCode(button);
+        final IRCode code = findCode(config, button);
+        return (code != null) && bufferCommand(config, code, priority);
+    }
+
+    @Override
+    public boolean sendKeyPresses(final DeviceConfiguration config, final String button, final int presses,
+            final CommandPriority priority, final Deadline deadline) {
+        final IRCode code = findCode(config, button);
 
         if (code == null) {
-            if (logger.isErrorEnabled()) {
-                logger.error("No IR code found for button '{}' in config file '{}'.", button, configFile);
-            }
             return false;
         }
 
-        return transmitCode(config, code, repeat);
+        // the device repeats the code by itself, but long codes would block the device and the deadline
+        final int pressRepeat = code.getRepeat();
+        final long pressDuration = code.getDuration();
+        final int maxPresses = Math.max(1, MAX_REPEAT / pressRepeat);
+        final int pressesPerCode = (pressDuration <= 0) ? maxPresses
+                : (int) Math.max(1, Math.min(maxPresses, PRESS_CHUNK_DURATION / pressDuration));
+        final List<Transmission> transmissions = new ArrayList<>();
+
+        for (int remaining = presses; remaining > 0; remaining -= pressesPerCode) {
+            final int count = Math.min(remaining, pressesPerCode);
+            transmissions.add(new Transmission(code.nextPayload(count * pressRepeat), 1, 0));
+        }
+
+        if (transmissions.isEmpty()) {
+            return true;
+        }
+
+        return transmitCodes(config, transmissions, priority, deadline);
     }
 
     @Override
-    public synchronized void registerConfiguration(final ZMoteConfig config) {
+    public boolean startHold(final DeviceConfiguration config, final String button, final CommandPriority priority) {
+        final IRCode code = findCode(config, button);
+
+        if (code == null) {
+            return false;
+        }
+
+        final String uuid = config.getUuid();
+        final Hold hold = new Hold();
+
+        stopHold(config); // only one button can be held per device
+        holds.put(uuid, hold);
+        getWorkerExecutor().submit(() -> runHold(config, code, priority, hold));
+
+        return true;
+    }
+
+    @Override
+    public void stopHold(final DeviceConfiguration config) {
+        final String uuid = config.getUuid();
+        final Hold hold = (uuid != null) ? holds.remove(uuid) : null;
+
+        if ((hold == null) || !hold.stop() || devicesWithoutStop.contains(uuid)) {
+            return; // nothing is being sent or the device sends a single frame at a time
+        }
+
+        final IZMoteClient client = clients.get(uuid);
+
+        try {
+            if ((client != null) && !client.stopir(config.getTimeout())) {
+                devicesWithoutStop.add(uuid);
+
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Device {} cannot stop sending IR codes, held buttons will be sent frame by frame.",
+                            uuid);
+                }
+            }
+
+        } catch (final CommunicationException e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to stop held button on device {}: {}", uuid, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public GroupResult sendCodeToGroup(final List<DeviceConfiguration> configs, final String code,
+            final CommandPriority priority, final Deadline deadline) {
+        return sendToGroup(configs, config -> sendCode(config, code, 1, priority, deadline));
+    }
+
+    @Override
+    public GroupResult sendKeyToGroup(final List<DeviceConfiguration> configs, final String button,
+            final CommandPriority priority, final Deadline deadline) {
+        return sendToGroup(configs, config -> sendKey(config, button, 1, priority, deadline));
+    }
+
+    @Override
+    public synchronized void registerConfiguration(final DeviceConfiguration config) {
         try {
             if (logger.isDebugEnabled()) {
                 logger.debug("Registering ZMote device configuration: {}", config);
@@ -105,9 +440,21 @@ public class ZMoteService implements IZMoteService {
             }
 
             if (config.getUrl() != null) {
-                findOrCreateZmoteClient(config);
+                final IZMoteClient client = findOrCreateZmoteClient(config);
+                final int timeout = config.getTimeout();
+                final String uuid = config.getUuid();
+
+                deviceTimeouts.put(uuid, timeout);
+
+                // devices which cannot be discovered are kept up to date by the health monitor
+                if (config.hasOverrideUrl()) {
+                    healthMonitor.register(uuid, () -> probe(uuid, client, timeout));
+                }
             }
 
+            acquire(fileRegistrations, configFile);
+            acquire(deviceRegistrations, config.getUuid());
+
         } catch (final ConfigurationException e) {
             throw e;
 
@@ -117,7 +464,7 @@ public class ZMoteService implements IZMoteService {
     }
 
     @Override
-    public synchronized void unregisterConfiguration(final ZMoteConfig config) {
+    public synchronized void unregisterConfiguration(final DeviceConfiguration config) {
         if (logger.isDebugEnabled()) {
             logger.debug("Unregistering ZMote device configuration: {}", config);
         }
@@ -125,49 +472,509 @@ public class ZMoteService implements IZMoteService {
         final String uuid = config.getUuid();
         final String configFile = config.getConfigFile();
 
-        if (configFile != null) {
+        if ((config.getUrl() != null) && config.hasOverrideUrl()) {
+            healthMonitor.unregister(uuid);
+        }
+
+        // other things may still use the same file or device
+        if (release(fileRegistrations, configFile)) {
             files.remove(configFile);
         }
 
-        if (uuid != null) {
+        if (release(deviceRegistrations, uuid)) {
+            stopHold(config);
+            offlineBuffers.remove(uuid);
             clients.remove(uuid);
+            breakers.remove(uuid);
+            devicesWithoutStop.remove(uuid);
+            deviceTimeouts.remove(uuid);
         }
     }
 
-    protected void activate() {
-        try {
-            httpClient.setFollowRedirects(true);
-            httpClient.start();
+    private static void acquire(final Map<String, Integer> registrations, final String key) {
+        if (key != null) {
+            registrations.merge(key, 1, Integer::sum);
+        }
+    }
 
-        } catch (final Exception e) {
-            throw new ZMoteBindingException("Failed to start HTTP client!", e);
+    /**
+     * Releases one registration of the given key.
+     *
+     * @return True if this was the last registration of the key.
+     */
+    private static boolean release(final Map<String, Integer> registrations, final String key) {
+        if (key == null) {
+            return false;
         }
 
+        final Integer remaining = registrations.computeIfPresent(key, (k, count) -> (count > 1) ? count - 1 : null);
+        return remaining == null;
+    }
+
+    @Override
+    public Map<String, TransmitLock.WaitStatistics> getWaitStatistics(final String uuid) {
+        final TransmitLock lock = (uuid != null) ? transmitLocks.get(uuid) : null;
+        return (lock != null) ? lock.getWaitStatistics() : Collections.emptyMap();
+    }
+
+    @Override
+    public long getExpiredCommandCount() {
+        return expiredCommands.get();
+    }
+
+    @Override
+    public long getFailedCommandCount() {
+        return failedCommands.get();
+    }
+
+    protected void activate(final Map<String, Object> properties) {
+        final BindingConfiguration config = new BindingConfiguration(properties);
+
+        httpSettings = getHttpSettings(config);
+        updateVirtualExecutor(config);
+        startHttpClient(config);
+        healthMonitor.setProbeExecutor(virtualExecutor);
+        healthMonitor.start();
+        startKeepAlive();
+
+        statisticsFuture = scheduler.scheduleWithFixedDelay(this::logStatistics,
+                ZMoteBindingConstants.STATISTICS_INTERVAL, ZMoteBindingConstants.STATISTICS_INTERVAL,
+                TimeUnit.SECONDS);
+
         if (logger.isDebugEnabled()) {
             logger.debug("ZMote service activated.");
         }
     }
 
+    // reconfigures the HTTP client in place, so the things don't have to be restarted
+    protected synchronized void modified(final Map<String, Object> properties) {
+        final BindingConfiguration config = new BindingConfiguration(properties);
+        final List<String> settings = getHttpSettings(config);
+
+        if (settings.equals(httpSettings)) {
+            return; // e.g. only the discovery settings have changed
+        }
+
+        httpSettings = settings;
+        ++httpGeneration;
+
+        stopKeepAlive();
+        stopHttpClient(); // requests which are still running fail, but don't count against the devices
+        updateVirtualExecutor(config);
+        startHttpClient(config);
+        healthMonitor.setProbeExecutor(virtualExecutor);
+        startKeepAlive();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("ZMote service reconfigured.");
+        }
+    }
+
     protected void deactivate() {
 
+        healthMonitor.stop();
+        stopKeepAlive();
+
+        if (statisticsFuture != null) {
+            statisticsFuture.cancel(false);
+            statisticsFuture = null;
+        }
+
+        logStatistics();
+
+        for (final Hold hold : holds.values()) {
+            hold.stop();
+        }
+
+        holds.clear();
+        offlineBuffers.clear();
+        rawCodes.clear();
+        devicesWithoutStop.clear();
+        deviceTimeouts.clear();
         files.clear();
+
+        synchronized (this) {
+            fileRegistrations.clear();
+            deviceRegistrations.clear();
+        }
+
         clients.clear();
+        breakers.clear();
+        transmitLocks.clear();
+
+        stopHttpClient();
+        healthMonitor.setProbeExecutor(null);
+
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+            virtualExecutor = null;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("ZMote service deactivated.");
+        }
+    }
+
+    /**
+     * Logs a summary of the dropped and failed commands, so problems show up
+     * without debug logging. Nothing is logged as long as nothing changes.
+     */
+    private synchronized void logStatistics() {
+        final long expired = expiredCommands.get();
+        final long failed = failedCommands.get();
+
+        if ((expired == loggedExpiredCommands) && (failed == loggedFailedCommands)) {
+            return;
+        }
+
+        loggedExpiredCommands = expired;
+        loggedFailedCommands = failed;
+
+        if (logger.isInfoEnabled()) {
+            logger.info("ZMote commands dropped as their deadline expired: {}, failed due to device errors: {}",
+                    expired, failed);
+        }
+    }
+
+    /**
+     * Creates or shuts down the virtual thread executor as configured. Tasks which
+     * are still running on an executor which is shut down are completed.
+     */
+    private void updateVirtualExecutor(final BindingConfiguration config) {
+        final boolean enabled = config.getBoolean(ZMoteBindingConstants.BINDING_CONFIG_VIRTUAL_THREADS, false);
+
+        if (enabled && (virtualExecutor == null)) {
+            virtualExecutor = VirtualThreads.newExecutor(VIRTUAL_THREAD_NAME);
+
+            if ((virtualExecutor == null) && logger.isWarnEnabled()) {
+                logger.warn("Virtual threads are not supported by this Java runtime, using thread pools instead.");
+            }
+
+        } else if (!enabled && (virtualExecutor != null)) {
+            final ExecutorService executor = virtualExecutor;
+            virtualExecutor = null;
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return The settings which require a restart of the HTTP client when they change.
+     */
+    private static List<String> getHttpSettings(final BindingConfiguration config) {
+        final List<String> settings = new ArrayList<>();
+
+        for (final String key : new String[] { ZMoteBindingConstants.BINDING_CONFIG_HTTP_MAX_THREADS,
+                ZMoteBindingConstants.BINDING_CONFIG_HTTP_MAX_CONNECTIONS,
+                ZMoteBindingConstants.BINDING_CONFIG_HTTP_MAX_QUEUED,
+                ZMoteBindingConstants.BINDING_CONFIG_HTTP_IDLE_TIMEOUT,
+                ZMoteBindingConstants.BINDING_CONFIG_HTTP_CONNECT_TIMEOUT,
+                ZMoteBindingConstants.BINDING_CONFIG_VIRTUAL_THREADS }) {
+            settings.add(config.getString(key, null));
+        }
+
+        return settings;
+    }
+
+    private void startHttpClient(final BindingConfiguration config) {
+        try {
+            configureHttpClient(config);
+
+            // started here, as the HTTP client would start a replaced executor after its transport
+            if (httpThreadPool != null) {
+                httpThreadPool.start();
+            }
+
+            httpClient.start();
+
+        } catch (final Exception e) {
+            throw new ZMoteBindingException("Failed to start HTTP client!", e);
+        }
+    }
 
+    private void stopHttpClient() {
         try {
             httpClient.stop();
 
+            if (httpThreadPool != null) {
+                httpThreadPool.stop();
+            }
+
         } catch (final Exception e) {
             if (logger.isDebugEnabled()) {
                 logger.debug("Ignored exception while stopping HTTP client!", e);
             }
+
+        } finally {
+            httpThreadPool = null;
         }
+    }
+
+    private synchronized void startKeepAlive() {
+        // the device closes idle connections as well, so only refresh those the client would keep
+        final long idleTimeout = httpClient.getIdleTimeout();
+
+        if (idleTimeout > 0) {
+            // never more often than the health monitor, which shares the probes
+            final long interval = Math.max(HEALTH_INTERVAL, idleTimeout / 2);
+            keepAliveFuture = scheduler.scheduleWithFixedDelay(() -> keepConnectionsAlive(interval), interval,
+                    interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void stopKeepAlive() {
+        if (keepAliveFuture != null) {
+            keepAliveFuture.cancel(false);
+            keepAliveFuture = null;
+        }
+    }
+
+    private void configureHttpClient(final BindingConfiguration config) {
+        final int maxThreads = Math.max(ZMoteBindingConstants.MIN_HTTP_THREADS,
+                config.getInt(ZMoteBindingConstants.BINDING_CONFIG_HTTP_MAX_THREADS,
+                        ZMoteBindingConstants.DEFAULT_HTTP_THREADS));
+
+        if (virtualExecutor != null) {
+            httpClient.setExecutor(virtualExecutor);
+
+        } else {
+            // a dedicated pool, so the binding does not compete with the rest of the system
+            httpThreadPool = new QueuedThreadPool(maxThreads,
+                    Math.min(maxThreads, ZMoteBindingConstants.MIN_HTTP_THREADS));
+            httpThreadPool.setName(HTTP_THREAD_NAME);
+            httpThreadPool.setDaemon(true);
+            httpClient.setExecutor(httpThreadPool);
+        }
+
+        httpClient.setSocketAddressResolver(null); // created on start, using the current executor
+
+        httpClient.setFollowRedirects(true);
+        httpClient.setMaxConnectionsPerDestination(Math.max(1, config.getInt(
+                ZMoteBindingConstants.BINDING_CONFIG_HTTP_MAX_CONNECTIONS,
+                ZMoteBindingConstants.DEFAULT_HTTP_MAX_CONNECTIONS)));
+        httpClient.setMaxRequestsQueuedPerDestination(Math.max(1, config.getInt(
+                ZMoteBindingConstants.BINDING_CONFIG_HTTP_MAX_QUEUED,
+                ZMoteBindingConstants.DEFAULT_HTTP_MAX_QUEUED)));
+        httpClient.setIdleTimeout(Math.max(0, config.getInt(ZMoteBindingConstants.BINDING_CONFIG_HTTP_IDLE_TIMEOUT,
+                ZMoteBindingConstants.DEFAULT_HTTP_IDLE_TIMEOUT)));
+        httpClient.setConnectTimeout(Math.max(1, config.getInt(
+                ZMoteBindingConstants.BINDING_CONFIG_HTTP_CONNECT_TIMEOUT,
+                ZMoteBindingConstants.DEFAULT_HTTP_CONNECT_TIMEOUT)));
 
         if (logger.isDebugEnabled()) {
-            logger.debug("ZMote service deactivated.");
+            logger.debug("HTTP client settings: executor={}, maxConnections={}, maxQueued={}, "
+                    + "idleTimeout={}, connectTimeout={}",
+                    (virtualExecutor != null) ? "virtual" : maxThreads, httpClient.getMaxConnectionsPerDestination(),
+                    httpClient.getMaxRequestsQueuedPerDestination(), httpClient.getIdleTimeout(),
+                    httpClient.getConnectTimeout());
         }
     }
 
-    private IZMoteClient findOrCreateZmoteClient(final ZMoteConfig config) {
+    @Override
+    public ExecutorService getWorkerExecutor() {
+        final ExecutorService executor = virtualExecutor;
+        return (executor != null) ? executor : workerPool;
+    }
+
+    /**
+     * Sends a cheap request to devices which have been idle for a while, so the
+     * HTTP client keeps a connection open and commands don't have to wait for the
+     * TCP handshake. Unreachable devices are left alone. The request goes through
+     * the health monitor, so it is shared with its probes and skipped if the
+     * device has been seen within the health interval.
+     */
+    private void keepConnectionsAlive(final long maxIdleTime) {
+        for (final Map.Entry<String, IZMoteClient> entry : clients.entrySet()) {
+            final String uuid = entry.getKey();
+            final IZMoteClient client = entry.getValue();
+            final CircuitBreaker breaker = breakers.get(uuid);
+
+            if ((client.getIdleTime() >= maxIdleTime)
+                    && ((breaker == null) || (breaker.getState() == CircuitBreaker.State.CLOSED))) {
+                final int timeout = deviceTimeouts.getOrDefault(uuid, ZMoteBindingConstants.DEFAULT_TIMEOUT);
+                getWorkerExecutor().submit(() -> healthMonitor.checkOnline(uuid, () -> probe(uuid, client, timeout)));
+            }
+        }
+    }
+
+    /**
+     * Returns the parsed raw IR code. Codes which are sent repeatedly are only
+     * parsed once, malformed codes are rejected before anything is sent.
+     *
+     * @throws InvalidCodeException if the code is malformed.
+     */
+    private IRCode findOrParseRawCode(final String code) {
+        IRCode irCode = rawCodes.get(code);
+
+        if (irCode == null) {
+            irCode = IRCode.parse(code);
+            rawCodes.put(code, irCode);
+        }
+
+        return irCode;
+    }
+
+    private IRCode findCode(final DeviceConfiguration config, final String button) {
+        final String configFile = config.getConfigFile();
+
+        if (configFile == null) {
+            if (logger.isErrorEnabled()) {
+                logger.error("Cannot send button key {} to device {} as no configuration file has been set!",
+                        button, config.getUuid());
+            }
+            return null;
+        }
+
+        final IRCode code = findOrCreateIRCodeCache(configFile).getCode(button);
+
+        if (code == null) {
+            if (logger.isErrorEnabled()) {
+                logger.error("No IR code found for button '{}' in config file '{}'.", button, configFile);
+            }
+        }
+
+        return code;
+    }
+
+    /**
+     * Sends the held code until the hold is stopped or the maximum hold duration
+     * has passed. The device repeats the code by itself for about
+     * {@link #HOLD_CHUNK_DURATION}, so there is only a short gap in the IR signal
+     * every now and then. Stopping aborts the transmission on the device. Devices
+     * which cannot do this are sent one frame at a time instead.
+     */
+    private void runHold(final DeviceConfiguration config, final IRCode code, final CommandPriority priority,
+            final Hold hold) {
+        final String uuid = config.getUuid();
+        final int timeout = config.getTimeout();
+        final IZMoteClient client = findOrCreateZmoteClient(config);
+        final CircuitBreaker breaker = findOrCreateCircuitBreaker(uuid);
+        final TransmitLock lock = findOrCreateTransmitLock(uuid);
+        final Deadline deadline = Deadline.after(TimeUnit.SECONDS.toMillis(ZMoteBindingConstants.MAX_HOLD_DURATION));
+
+        final long frameDuration = code.getFrameDuration();
+        final int repeat = (devicesWithoutStop.contains(uuid) || (frameDuration <= 0)) ? 1
+                : (int) Math.max(1, Math.min(MAX_REPEAT, HOLD_CHUNK_DURATION / frameDuration));
+        final IRPayload repeatedCode = code.nextPayload(repeat); // a held toggle code must not toggle
+        final long generation = httpGeneration;
+
+        TransmitLock.Ticket ticket = null;
+
+        try {
+            breaker.acquire();
+            ticket = lock.acquire(priority, config.getThingId(), deadline);
+
+            while (true) {
+                lock.allowPreemption(ticket, deadline);
+
+                if (!hold.begin()) {
+                    break;
+                }
+
+                try {
+                    client.sendir(repeatedCode, timeout, deadline);
+                    deviceAlive(uuid);
+
+                } catch (final DeviceBusyException e) {
+                    deviceAlive(uuid); // a busy device is still alive
+
+                } finally {
+                    hold.end();
+                }
+            }
+
+        } catch (final DeadlineExceededException e) {
+            breaker.releaseTrial();
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Stopped held button on device {} after the maximum hold duration.", uuid);
+            }
+
+        } catch (final CircuitOpenException e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("Cannot hold button on device {}: {}", uuid, e.getMessage());
+            }
+
+        } catch (final CommunicationException e) {
+            failedCommands.incrementAndGet();
+            recordFailure(breaker, generation);
+
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to hold button on device {}: {}", uuid, e.getMessage());
+            }
+
+        } catch (final RuntimeException e) {
+            breaker.releaseTrial();
+
+            if (logger.isWarnEnabled()) {
+                logger.warn("Failed to hold button on device {}!", uuid, e);
+            }
+
+        } finally {
+            if (ticket != null) {
+                lock.release(ticket);
+            }
+
+            holds.remove(uuid, hold);
+        }
+    }
+
+    /**
+     * Runs the given send operation for all devices in parallel and waits for all
+     * of them, so the total time is that of the slowest device.
+     */
+    private GroupResult sendToGroup(final List<DeviceConfiguration> configs,
+            final Predicate<DeviceConfiguration> send) {
+        final long startTime = System.nanoTime();
+        final Map<String, Future<Boolean>> futures = new LinkedHashMap<>();
+        final Map<String, GroupResult.Outcome> outcomes = new LinkedHashMap<>();
+        final Map<String, String> errors = new HashMap<>();
+
+        // things sharing a device are serialized by its transmit lock
+        for (final DeviceConfiguration config : configs) {
+            final String thingId = config.getThingId();
+
+            if ((config.getUuid() != null) && !futures.containsKey(thingId)) {
+                futures.put(thingId, getWorkerExecutor().submit(() -> send.test(config)));
+            }
+        }
+
+        try {
+            for (final Map.Entry<String, Future<Boolean>> entry : futures.entrySet()) {
+                final String thingId = entry.getKey();
+
+                try {
+                    final boolean sent = entry.getValue().get();
+                    outcomes.put(thingId, sent ? GroupResult.Outcome.SENT : GroupResult.Outcome.NOT_SENT);
+
+                } catch (final ExecutionException e) {
+                    final Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+
+                    outcomes.put(thingId, (cause instanceof DeadlineExceededException) ? GroupResult.Outcome.EXPIRED
+                            : GroupResult.Outcome.FAILED);
+                    errors.put(thingId, cause.getMessage());
+                }
+            }
+
+        } catch (final InterruptedException e) {
+            for (final Future<Boolean> future : futures.values()) {
+                future.cancel(true);
+            }
+
+            Thread.currentThread().interrupt();
+            throw new ZMoteBindingException("Interrupted while sending to a group of devices!", e);
+        }
+
+        final GroupResult result = new GroupResult(outcomes, errors,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Sent command to group of things: {}", result);
+        }
+
+        return result;
+    }
+
+    private IZMoteClient findOrCreateZmoteClient(final DeviceConfiguration config) {
 
         final String uuid = config.getUuid();
         final String url = config.getUrl();
@@ -208,44 +1015,235 @@ public class ZMoteService implements IZMoteService {
         return cache;
     }
 
-    private int getRetry(final ZMoteConfig config) {
-        final BigDecimal configRetry = config.getRetry();
-        return (configRetry != null) ? configRetry.intValue() : ZMoteBindingConstants.DEFAULT_RETRY;
+    private TransmitLock findOrCreateTransmitLock(final String uuid) {
+        return transmitLocks.computeIfAbsent(uuid, key -> new TransmitLock());
     }
 
-    private int getTimeout(final ZMoteConfig config) {
-        final BigDecimal timeout = config.getTimeout();
-        return (timeout != null) ? timeout.intValue() : ZMoteBindingConstants.DEFAULT_TIMEOUT;
+    private CircuitBreaker findOrCreateCircuitBreaker(final String uuid) {
+        return breakers.computeIfAbsent(uuid, key -> new CircuitBreaker(key,
+                ZMoteBindingConstants.CIRCUIT_BREAKER_THRESHOLD,
+                TimeUnit.SECONDS.toMillis(ZMoteBindingConstants.CIRCUIT_BREAKER_COOLDOWN)));
     }
 
-    private boolean transmitCode(final ZMoteConfig config, final IRCode code, final int repeat) {
+    private boolean probe(final String uuid, final IZMoteClient client, final int timeout) {
+        try {
+            client.check(timeout);
+            deviceAlive(uuid);
+            return true;
+
+        } catch (final ConfigurationException e) {
+            throw e;
+
+        } catch (final CommunicationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records a failed request with the circuit breaker, unless it failed because the
+     * HTTP client was restarted meanwhile.
+     *
+     * @return True if the circuit breaker has opened.
+     */
+    private boolean recordFailure(final CircuitBreaker breaker, final long generation) {
+        if (generation != httpGeneration) {
+            breaker.releaseTrial();
+            return false;
+        }
+
+        return breaker.recordFailure();
+    }
+
+    private void deviceAlive(final String uuid) {
+        healthMonitor.recordSuccess(uuid);
+
+        final CircuitBreaker breaker = breakers.get(uuid);
+
+        if (breaker != null) {
+            breaker.recordSuccess();
+        }
+
+        flushOfflineBuffer(uuid, null);
+    }
+
+    private boolean bufferCommand(final DeviceConfiguration config, final IRCode code,
+            final CommandPriority priority) {
         final String uuid = config.getUuid();
-        final int retry = getRetry(config);
-        final int timeoutInt = getTimeout(config);
+        final int bufferTime = config.getOfflineBuffer();
+
+        if ((uuid == null) || (bufferTime <= 0)) {
+            return false;
+        }
+
+        final Deadline expiry = Deadline.after(TimeUnit.SECONDS.toMillis(bufferTime));
+
+        offlineBuffers.computeIfAbsent(uuid, key -> new OfflineBuffer<>(ZMoteBindingConstants.OFFLINE_BUFFER_SIZE))
+                .add(new BufferedCommand(config, code, priority, expiry), expiry);
+
+        return true;
+    }
+
+    /**
+     * Replays the commands which were buffered while the device was offline, in the
+     * order they were received. This runs on a worker thread, as it may be triggered
+     * while a command holds the transmit lock of the device.
+     *
+     * @param uuid The UUID of the device which is reachable again.
+     * @param url The URL the device was discovered at or null if it is unchanged.
+     */
+    private void flushOfflineBuffer(final String uuid, final String url) {
+        if ((uuid == null) || offlineBuffers.isEmpty()) {
+            return;
+        }
+
+        final OfflineBuffer<BufferedCommand> buffer = offlineBuffers.remove(uuid);
+
+        if (buffer == null) {
+            return;
+        }
+
+        final List<BufferedCommand> commands = buffer.drain();
+        expiredCommands.addAndGet(buffer.getExpiredCount());
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Device {} is reachable again, replaying {} buffered commands ({} expired, {} dropped).",
+                    uuid, commands.size(), buffer.getExpiredCount(), buffer.getDroppedCount());
+        }
+
+        if (commands.isEmpty()) {
+            return;
+        }
+
+        getWorkerExecutor().submit(() -> {
+            for (final BufferedCommand command : commands) {
+                final DeviceConfiguration config = (url != null) ? command.config.withAutoUrl(url)
+                        : command.config;
+
+                try {
+                    transmitCodes(config, Collections.singletonList(new Transmission(command.code, 1, 0)),
+                            command.priority, command.expiry);
+
+                } catch (final DeadlineExceededException e) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Buffered command for device {} expired: {}", uuid, e.getMessage());
+                    }
+
+                } catch (final RuntimeException e) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("Failed to replay buffered commands on device {}: {}", uuid, e.getMessage());
+                    }
+                    break; // the device is gone again
+                }
+            }
+        });
+    }
+
+    private boolean transmitCodes(final DeviceConfiguration config, final List<Transmission> transmissions,
+            final CommandPriority priority, final Deadline deadline) {
+        final String uuid = config.getUuid();
+        final int retry = config.getRetry();
+        final int timeout = config.getTimeout();
         final IZMoteClient client = findOrCreateZmoteClient(config);
+        final CircuitBreaker breaker = findOrCreateCircuitBreaker(uuid);
+        final TransmitLock lock = findOrCreateTransmitLock(uuid);
+        final long generation = httpGeneration;
+
+        breaker.acquire(); // fails fast while the device is known to be unreachable
 
+        TransmitLock.Ticket ticket = null;
         boolean success = false;
 
-        for (int i = 0; i < repeat; ++i) {
+        try {
+            final long startTime = System.nanoTime();
+            ticket = lock.acquire(priority, config.getThingId(), deadline);
 
-            success = false;
+            if (logger.isDebugEnabled()) {
+                logger.debug("Command of thing {} waited {} ms for device {}.", config.getThingId(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), uuid);
+            }
 
-            for (int j = 0; j <= retry; ++j) {
-                try {
-                    client.sendir(code.nextCode(), timeoutInt);
-                    success = true;
-                    break;
-                } catch (final DeviceBusyException e) {
-                    // busy or other communication errors
+            for (int k = 0; k < transmissions.size(); ++k) {
+                final Transmission transmission = transmissions.get(k);
+
+                if (k > 0) {
+                    pause(transmissions.get(k - 1).pause, deadline);
+                }
+
+                for (int i = 0; i < transmission.repeat; ++i) {
+
+                    success = false;
+
+                    for (int j = 0; j <= retry; ++j) {
+                        if ((k > 0) || (i > 0) || (j > 0)) {
+                            lock.allowPreemption(ticket, deadline); // between two codes
+                        }
+
+                        try {
+                            client.sendir(transmission.nextPayload(), timeout, deadline);
+                            deviceAlive(uuid);
+                            success = true;
+                            break;
+
+                        } catch (final DeviceBusyException e) {
+                            deviceAlive(uuid); // a busy device is still alive
+
+                        } catch (final CommunicationException e) {
+                            failedCommands.incrementAndGet();
+
+                            if (recordFailure(breaker, generation)) {
+                                throw new CircuitOpenException(breaker.describe(), e);
+                            }
+                            throw e;
+                        }
+                    }
+
+                    if (success == false) {
+                        failedCommands.incrementAndGet();
+                        throw new CommunicationException(String.format(
+                                "Failed to send IR code to device '%s' after %d retries!", uuid, retry));
+                    }
                 }
             }
 
-            if (success == false) {
-                throw new CommunicationException(
-                        String.format("Failed to send IR code to device '%s' after %d retries!", uuid, retry));
+        } catch (final DeadlineExceededException e) {
+            breaker.releaseTrial();
+            expiredCommands.incrementAndGet();
+            throw e;
+
+        } catch (final CommunicationException e) {
+            throw e; // already recorded
+
+        } catch (final RuntimeException e) {
+            breaker.releaseTrial();
+            throw e;
+
+        } finally {
+            if (ticket != null) {
+                lock.release(ticket);
             }
         }
 
         return success;
     }
+
+    /**
+     * Waits between two codes of a sequence, so the receiver can tell them apart.
+     */
+    private void pause(final long millis, final Deadline deadline) {
+        if (millis <= 0) {
+            return;
+        }
+
+        if (deadline.getRemaining() < millis) {
+            throw new DeadlineExceededException("Deadline expired before the next code of the sequence!");
+        }
+
+        try {
+            Thread.sleep(millis);
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ZMoteBindingException("Interrupted while sending a key sequence!", e);
+        }
+    }
 }
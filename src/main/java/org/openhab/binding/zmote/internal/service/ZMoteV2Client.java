@@ -10,6 +10,8 @@ package org.openhab.binding.zmote.internal.service;
 
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.ContentResponse;
@@ -17,8 +19,11 @@ import org.eclipse.jetty.client.util.StringContentProvider;
 import org.eclipse.jetty.http.HttpStatus;
 import org.openhab.binding.zmote.internal.exception.CommunicationException;
 import org.openhab.binding.zmote.internal.exception.ConfigurationException;
+import org.openhab.binding.zmote.internal.exception.DeadlineExceededException;
 import org.openhab.binding.zmote.internal.exception.DeviceBusyException;
 import org.openhab.binding.zmote.internal.exception.ZMoteBindingException;
+import org.openhab.binding.zmote.internal.model.IRPayload;
+import org.openhab.binding.zmote.internal.util.Deadline;
 
 /**
  * @author Alexander Maret-Huskinson - Initial contribution
@@ -27,6 +32,8 @@ public class ZMoteV2Client implements IZMoteClient {
     private static final String SENDIR_SUCCESS = "completeir";
     private static final String SENDIR_BUSY = "busyIR";
     private static final String SENDIR_ERROR = "error";
+    private static final String STOPIR_SUCCESS = "stopir";
+    private static final long MIN_TIMEOUT = 1000;
 
     // private final Logger logger = LoggerFactory.getLogger(ZMoteV2Client.class);
 
@@ -34,6 +41,15 @@ public class ZMoteV2Client implements IZMoteClient {
     private final String baseUrl;
     private final String uuid;
 
+    // sendir answers after the code has been sent, so it is measured without the transmission time
+    private final RttEstimator checkRtt = new RttEstimator(MIN_TIMEOUT);
+    private final RttEstimator sendirRtt = new RttEstimator(MIN_TIMEOUT);
+
+    private volatile long lastResponseTime = System.nanoTime();
+
+    // one request at a time, a lock instead of a monitor doesn't pin virtual threads
+    private final ReentrantLock requestLock = new ReentrantLock();
+
     public ZMoteV2Client(final HttpClient httpClient, final String baseUrl, final String uuid) {
         this.httpClient = httpClient;
         this.baseUrl = baseUrl;
@@ -41,10 +57,18 @@ public class ZMoteV2Client implements IZMoteClient {
     }
 
     @Override
-    public synchronized void check(final int timeout) {
+    public void check(final int timeout) {
+        requestLock.lock();
+
         try {
             final String url = String.format("%s/uuid", baseUrl, uuid);
-            final ContentResponse response = httpClient.GET(url).getRequest().timeout(timeout, TimeUnit.SECONDS).send();
+            final long startTime = System.nanoTime();
+            final ContentResponse response = httpClient.newRequest(url)
+                    .timeout(getTimeout(checkRtt, timeout), TimeUnit.MILLISECONDS).send();
+
+            lastResponseTime = System.nanoTime();
+            checkRtt.addSample(TimeUnit.NANOSECONDS.toMillis(lastResponseTime - startTime));
+
             final String actualContent = response.getContentAsString();
             final String expectedContent = String.format("uuid,%s", uuid).toLowerCase(Locale.ENGLISH);
 
@@ -61,8 +85,15 @@ public class ZMoteV2Client implements IZMoteClient {
             throw e;
 
         } catch (final Exception e) {
+            if (isTimeout(e)) {
+                checkRtt.onTimeout();
+            }
+
             final String errorMsg = String.format("Failed to validate UUID from device '%s'!", uuid);
             throw new CommunicationException(errorMsg, e);
+
+        } finally {
+            requestLock.unlock();
         }
     }
 
@@ -72,25 +103,96 @@ public class ZMoteV2Client implements IZMoteClient {
     }
 
     @Override
-    public synchronized void sendir(final String code, final int timeout) {
+    public long getIdleTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastResponseTime);
+    }
+
+    @Override
+    public void sendir(final IRPayload payload, final int timeout, final Deadline deadline) {
+        requestLock.lock();
+
         try {
-            final String url = String.format("%s/v2/%s", baseUrl, uuid);
-            final String msg = String.format("sendir,1:1,0,%s", code);
+            sendirLocked(payload, timeout, deadline);
+
+        } finally {
+            requestLock.unlock();
+        }
+    }
+
+    private void sendirLocked(final IRPayload payload, final int timeout, final Deadline deadline) {
+        // the device answers once the code has been sent, so the transmission time adds to the timeout
+        final long transmitTime = payload.getDuration();
+        // waiting for the previous command to complete counts against the deadline as well
+        final long estimatedTimeout = getTimeout(sendirRtt, timeout) + transmitTime;
+        final long requestTimeout = deadline.limit(estimatedTimeout);
 
-            final ContentResponse response = httpClient.POST(url).content(new StringContentProvider(msg), "text/plain")
-                    .timeout(timeout, TimeUnit.SECONDS).send();
+        if (requestTimeout < 1) {
+            throw new DeadlineExceededException(
+                    String.format("Deadline expired before IR code could be sent to device '%s'!", uuid));
+        }
 
+        try {
+            final String url = String.format("%s/v2/%s", baseUrl, uuid);
+            final long startTime = System.nanoTime();
+            final ContentResponse response = httpClient.POST(url)
+                    .content(new StringContentProvider(payload.getMessage()), "text/plain")
+                    .timeout(requestTimeout, TimeUnit.MILLISECONDS).send();
+
+            lastResponseTime = System.nanoTime();
+            sendirRtt.addSample(TimeUnit.NANOSECONDS.toMillis(lastResponseTime - startTime) - transmitTime);
             parseSendirResponse(response);
 
         } catch (final ZMoteBindingException e) {
             throw e;
 
         } catch (final Exception e) {
-            final String errorMsg = String.format("Failed to send IR code '%s' to device '%s'!", code, uuid);
+            if (isTimeout(e) && (requestTimeout < estimatedTimeout)) {
+                // cut short by the deadline, this says nothing about the device
+                throw new DeadlineExceededException(
+                        String.format("Deadline expired while sending IR code to device '%s'!", uuid), e);
+            }
+
+            if (isTimeout(e)) {
+                sendirRtt.onTimeout();
+            }
+
+            final String errorMsg = String.format("Failed to send IR code '%s' to device '%s'!", payload, uuid);
+            throw new CommunicationException(errorMsg, e);
+        }
+    }
+
+    // doesn't take the request lock, as it has to interrupt a running sendir
+    @Override
+    public boolean stopir(final int timeout) {
+        try {
+            final String url = String.format("%s/v2/%s", baseUrl, uuid);
+            final ContentResponse response = httpClient.POST(url)
+                    .content(new StringContentProvider("stopir,1:1"), "text/plain")
+                    .timeout(TimeUnit.SECONDS.toMillis(timeout), TimeUnit.MILLISECONDS).send();
+
+            final String responseContent = response.getContentAsString();
+
+            return (response.getStatus() == HttpStatus.OK_200) && (responseContent != null)
+                    && responseContent.startsWith(STOPIR_SUCCESS);
+
+        } catch (final Exception e) {
+            final String errorMsg = String.format("Failed to stop IR transmission on device '%s'!", uuid);
             throw new CommunicationException(errorMsg, e);
         }
     }
 
+    /**
+     * Returns the timeout in milliseconds for the next request, based on the measured
+     * round-trip times and limited by the configured timeout.
+     */
+    private static long getTimeout(final RttEstimator estimator, final int maxTimeout) {
+        return estimator.getTimeout(TimeUnit.SECONDS.toMillis(maxTimeout));
+    }
+
+    private static boolean isTimeout(final Exception e) {
+        return (e instanceof TimeoutException) || (e.getCause() instanceof TimeoutException);
+    }
+
     private void parseSendirResponse(final ContentResponse response) {
 
         final String responseContent = response.getContentAsString();
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.zmote.internal.exception.DeadlineExceededException;
+
+/**
+ * An absolute point in time by which a command has to be completed. It is
+ * created once when the command is received and passed along to every attempt,
+ * so retries and repeats share the same time budget.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(0, false);
+
+    private final long expiresAt;
+    private final boolean bounded;
+
+    private Deadline(final long expiresAt, final boolean bounded) {
+        this.expiresAt = expiresAt;
+        this.bounded = bounded;
+    }
+
+    /**
+     * Creates a deadline which expires after the given time.
+     *
+     * @param millis The time budget in milliseconds.
+     *
+     * @return The new deadline.
+     */
+    public static Deadline after(final long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)), true);
+    }
+
+    /**
+     * @return A deadline which never expires.
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * @return True if the deadline has passed.
+     */
+    public boolean isExpired() {
+        return bounded && ((System.nanoTime() - expiresAt) >= 0);
+    }
+
+    /**
+     * @return The remaining time in milliseconds, 0 if the deadline has passed or
+     *         {@link Long#MAX_VALUE} if it never expires.
+     */
+    public long getRemaining() {
+        if (!bounded) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime()));
+    }
+
+    /**
+     * Cuts the given timeout to the remaining time.
+     *
+     * @param timeout The timeout in milliseconds.
+     *
+     * @return The smaller of the timeout and the remaining time.
+     */
+    public long limit(final long timeout) {
+        return Math.min(timeout, getRemaining());
+    }
+
+    /**
+     * Makes sure there is still time left.
+     *
+     * @param message The message of the exception.
+     *
+     * @throws DeadlineExceededException if the deadline has passed.
+     */
+    public void check(final String message) {
+        if (isExpired()) {
+            throw new DeadlineExceededException(message);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.util;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects commands which are repeated within a short time window, e.g. due to a
+ * double tap in the UI. The window starts with the first command and is not
+ * extended by the duplicates, so a steady stream of commands still gets through
+ * once per window.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class DuplicateFilter {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private final Map<String, Long> lastAccepted = new LruMap<>(MAX_ENTRIES);
+    private long suppressed = 0;
+
+    /**
+     * Checks if the given command has already been accepted within the window.
+     * If not, the command is accepted and starts a new window.
+     *
+     * @param key Identifies the command, e.g. the channel and the command value.
+     * @param window The window in milliseconds, 0 disables the filter.
+     *
+     * @return True if the command is a duplicate which should be dropped.
+     */
+    public synchronized boolean isDuplicate(final String key, final long window) {
+        if (window <= 0) {
+            return false;
+        }
+
+        final long now = System.nanoTime();
+        final Long last = lastAccepted.get(key);
+
+        if ((last != null) && ((now - last) < TimeUnit.MILLISECONDS.toNanos(window))) {
+            ++suppressed;
+            return true;
+        }
+
+        lastAccepted.put(key, now);
+        return false;
+    }
+
+    /**
+     * Forgets all accepted commands.
+     */
+    public synchronized void clear() {
+        lastAccepted.clear();
+    }
+
+    /**
+     * @return The number of commands which have been dropped as duplicates.
+     */
+    public synchronized long getSuppressedCount() {
+        return suppressed;
+    }
+}
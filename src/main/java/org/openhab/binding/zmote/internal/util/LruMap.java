@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map with a maximum size which evicts the least recently used entry when
+ * the size is exceeded. This class is not thread-safe, wrap it using
+ * {@link java.util.Collections#synchronizedMap(Map)} if necessary.
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = -2651203547950931264L;
+
+    private final int maxSize;
+    private long evictionCount = 0;
+
+    /**
+     * Creates a new map.
+     *
+     * @param maxSize The maximum number of entries.
+     */
+    public LruMap(final int maxSize) {
+        super(16, 0.75f, true);
+
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be positive!");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return The number of entries which have been evicted so far.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return The maximum number of entries.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+        if (size() > maxSize) {
+            ++evictionCount;
+            return true;
+        }
+        return false;
+    }
+}
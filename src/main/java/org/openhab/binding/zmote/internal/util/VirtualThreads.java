@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.zmote.internal.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates executors which run each task on its own virtual thread. The binding
+ * is compiled for Java 8, so virtual threads are looked up using reflection and
+ * are only available if the runtime supports them (Java 21 or newer).
+ *
+ * @author Alexander Maret-Huskinson - Initial contribution
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return True if the runtime supports virtual threads.
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+
+        } catch (final NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates an executor which starts a new virtual thread for each task. The
+     * executor has to be shut down by the caller.
+     *
+     * @param name The prefix of the thread names.
+     *
+     * @return The executor or null if the runtime does not support virtual threads.
+     */
+    public static ExecutorService newExecutor(final String name) {
+        try {
+            // Thread.ofVirtual().name(name, 0).factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder$OfVirtual").getMethod("name", String.class, long.class)
+                    .invoke(builder, name + "-", 0L);
+            final ThreadFactory factory = (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory").invoke(builder);
+
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs a task repeatedly on a single thread of the given executor, like
+     * {@link java.util.concurrent.ScheduledExecutorService#scheduleWithFixedDelay}.
+     * The thread sleeps between the runs, which is cheap on a virtual thread.
+     * If the task throws an exception, it is not run again.
+     *
+     * @param executor The executor which provides the thread.
+     * @param task The task.
+     * @param initialDelay The delay before the first run.
+     * @param delay The delay between the end of one run and the start of the next.
+     * @param unit The unit of the delays.
+     *
+     * @return A future which stops the task if it is cancelled with interruption.
+     */
+    public static Future<?> scheduleWithFixedDelay(final ExecutorService executor, final Runnable task,
+            final long initialDelay, final long delay, final TimeUnit unit) {
+        return executor.submit(() -> {
+            try {
+                unit.sleep(initialDelay);
+
+                while (!Thread.currentThread().isInterrupted()) {
+                    task.run();
+                    unit.sleep(delay);
+                }
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+}